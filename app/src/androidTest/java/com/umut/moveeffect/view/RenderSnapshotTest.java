@@ -0,0 +1,123 @@
+package com.umut.moveeffect.view;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.umut.moveeffect.raster.ArgbBuffer;
+import com.umut.moveeffect.render.TrailStyle;
+import com.umut.moveeffect.render.TrailTable;
+import com.umut.moveeffect.util.BitmapUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The software composite of {@link RenderSnapshot#render()} against the Canvas path it replaced,
+ * {@link Selection#draw} with the view's anti-aliased SRC_OVER paint.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RenderSnapshotTest {
+
+    private static final int WIDTH = 360;
+    private static final int HEIGHT = 640;
+    // blending rounds differently in Skia and in the fixed-point compositor
+    private static final int TOLERANCE = 2;
+
+    @Test
+    public void wholePixelTrailsMatchCanvas() {
+        final Random random = new Random(41);
+        for (int run = 0; run < 10; run++) {
+            final List<Selection> selections = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                final int count = 1 + random.nextInt(20);
+                selections.add(selection(random, count, (random.nextInt(300) - 150) / count * count,
+                        (random.nextInt(500) - 250) / count * count, TrailStyle.DEFAULT));
+            }
+            assertEquals("run " + run, 0, countMismatches(selections));
+        }
+    }
+
+    @Test
+    public void subpixelAndScaledTrailsMatchCanvas() {
+        final Random random = new Random(43);
+        for (int run = 0; run < 10; run++) {
+            final List<Selection> selections = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                selections.add(selection(random, 1 + random.nextInt(30), random.nextFloat() * 300 - 150,
+                        random.nextFloat() * 500 - 250, new TrailStyle(TrailStyle.CURVE_EASE_OUT,
+                                TrailStyle.CURVE_LINEAR, random.nextFloat(), 0.5f + random.nextFloat())));
+            }
+            // nearest sampling may pick the neighbouring texel where a center lands right on a texel edge
+            assertTrue("run " + run, countMismatches(selections) <= WIDTH * HEIGHT / 1000);
+        }
+    }
+
+    /**
+     * @return pixels where any channel of the two composites differs by more than {@link #TOLERANCE}
+     */
+    private static int countMismatches(List<Selection> selections) {
+        final Bitmap background = bitmap(new Random(selections.size()), WIDTH, HEIGHT, false);
+        final Bitmap expected = background.copy(Bitmap.Config.ARGB_8888, true);
+        final Canvas canvas = new Canvas(expected);
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_OVER));
+        final RectF scratch = new RectF();
+        for (int i = 0; i < selections.size(); i++) {
+            selections.get(i).draw(canvas, paint, scratch);
+        }
+        final RenderSnapshot snapshot = new RenderSnapshot(background, selections, WIDTH, HEIGHT);
+        final Bitmap actual = snapshot.render();
+
+        final int[] expectedPixels = BitmapUtils.readStoredPixels(expected).getPixels();
+        final ArgbBuffer actualPixels = BitmapUtils.readStoredPixels(actual);
+        int mismatches = 0;
+        for (int i = 0; i < expectedPixels.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                if (Math.abs((expectedPixels[i] >>> shift & 0xFF) - (actualPixels.getPixels()[i] >>> shift & 0xFF))
+                        > TOLERANCE) {
+                    mismatches++;
+                    break;
+                }
+            }
+        }
+        snapshot.release();
+        return mismatches;
+    }
+
+    private static Selection selection(Random random, int count, float dragX, float dragY, TrailStyle style) {
+        final int width = 20 + random.nextInt(120);
+        final int height = 20 + random.nextInt(120);
+        final int left = random.nextInt(WIDTH - width);
+        final int top = random.nextInt(HEIGHT - height);
+        final Rect rect = new Rect(left, top, left + width, top + height);
+        final Path path = new Path();
+        path.addRect(new RectF(rect), Path.Direction.CW);
+        final TrailTable trail = new TrailTable();
+        trail.update(count, dragX, dragY, random.nextInt(256), style);
+        return new Selection(bitmap(random, width, height, true), path, rect, trail, null);
+    }
+
+    private static Bitmap bitmap(Random random, int width, int height, boolean translucent) {
+        final int[] colors = new int[width * height];
+        for (int i = 0; i < colors.length; i++) {
+            final int alpha = !translucent ? 0xFF : random.nextInt(4) == 0 ? 0 : random.nextInt(256);
+            colors[i] = alpha << 24 | random.nextInt(0x1000000);
+        }
+        return Bitmap.createBitmap(colors, width, height, Bitmap.Config.ARGB_8888).copy(Bitmap.Config.ARGB_8888,
+                true);
+    }
+}
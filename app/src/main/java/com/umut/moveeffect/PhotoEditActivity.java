@@ -1,10 +1,10 @@
 package com.umut.moveeffect;
 
 import android.Manifest;
+import android.content.ContentResolver;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.media.MediaScannerConnection;
 import android.net.Uri;
 import android.os.Bundle;
@@ -17,43 +17,114 @@ import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ProgressBar;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.umut.moveeffect.export.ImageExporter;
+import com.umut.moveeffect.metrics.Metrics;
 import com.umut.moveeffect.misc.SeekProgressChangeListener;
+import com.umut.moveeffect.render.TrailStyle;
+import com.umut.moveeffect.util.BitmapPool;
 import com.umut.moveeffect.util.BitmapUtils;
 import com.umut.moveeffect.util.Constants;
 import com.umut.moveeffect.util.FileUtils;
+import com.umut.moveeffect.util.LogMetricsReporter;
 import com.umut.moveeffect.view.EditableImageView;
+import com.umut.moveeffect.view.GLTrailView;
+import com.umut.moveeffect.view.RenderSnapshot;
 import com.umut.moveeffect.view.SelectionStateListener;
 
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-public class PhotoEditActivity extends AppCompatActivity implements SelectionStateListener {
+public class PhotoEditActivity extends AppCompatActivity implements SelectionStateListener,
+        ImageExporter.Listener {
 
     private static final int PHOTO_SELECTION_RC = 1000;
     private static final int WRITE_EXTERNAL_RC = 1001;
     private static final String MIME_TYPE_GALLERY_PICK = "image/*";
+    private static final String KEY_SOURCE_IMAGE_URI = "source_image_uri";
+    private static final TrailStyle FADE_TRAIL_STYLE =
+            new TrailStyle(TrailStyle.CURVE_LINEAR, TrailStyle.CURVE_EASE_IN, 0.9f, 1f);
+    private static final TrailStyle EASE_TRAIL_STYLE =
+            new TrailStyle(TrailStyle.CURVE_EASE_OUT, TrailStyle.CURVE_LINEAR, 0f, 1f);
+    private static final TrailStyle SHRINK_TRAIL_STYLE =
+            new TrailStyle(TrailStyle.CURVE_LINEAR, TrailStyle.CURVE_LINEAR, 0.5f, 0.4f);
 
     private EditableImageView imageView;
+    private GLTrailView glTrailView;
     private TextView repCountTextView;
     private TextView alphaIndicatorTextView;
     private SeekBar repCountSeekBar;
     private SeekBar alphaSelectionSeekBar;
     private View settingsSelectionView;
+    private ProgressBar exportProgressBar;
 
     private float imageViewWidth;
     private float imageViewHeight;
 
+    private final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor();
+    @Nullable
+    private Future<?> decodeTask;
+    private int decodeGeneration;
+    private ImageExporter imageExporter;
+    @Nullable
+    private Uri sourceImageUri;
+    private boolean fullResolutionSave;
+    private boolean animationSave;
+    private boolean canUndo;
+    private boolean canRedo;
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_photo_edit);
+        Metrics.setEnabled(BuildConfig.DEBUG);
+        Metrics.setReporter(new LogMetricsReporter());
+        imageExporter = new ImageExporter(getContentResolver(), this);
         initViews();
         computeImageViewSize();
-        startPhotoSelection();
+        final Uri restoredImageUri = savedInstanceState == null
+                ? null : savedInstanceState.getParcelable(KEY_SOURCE_IMAGE_URI);
+        if (restoredImageUri == null) {
+            startPhotoSelection();
+        } else {
+            // queued behind computeImageViewSize so the decode targets the laid out size
+            imageView.post(() -> decodeImage(restoredImageUri));
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putParcelable(KEY_SOURCE_IMAGE_URI, sourceImageUri);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        Metrics.report();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (decodeTask != null) {
+            decodeTask.cancel(true);
+            decodeTask = null;
+        }
+        decodeExecutor.shutdownNow();
+        imageExporter.shutdown();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        BitmapPool.get().trimMemory(level);
     }
 
     @Override
@@ -92,6 +163,13 @@ public class PhotoEditActivity extends AppCompatActivity implements SelectionSta
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(R.id.undoMenuItem).setEnabled(canUndo);
+        menu.findItem(R.id.redoMenuItem).setEnabled(canRedo);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         switch (item.getItemId()) {
@@ -99,7 +177,36 @@ public class PhotoEditActivity extends AppCompatActivity implements SelectionSta
                 startPhotoSelection();
                 return true;
             case R.id.saveImageMenuItem:
-                saveImage();
+                saveImage(false);
+                return true;
+            case R.id.saveFullResolutionMenuItem:
+                saveImage(true);
+                return true;
+            case R.id.saveAnimationMenuItem:
+                saveAnimation();
+                return true;
+            case R.id.undoMenuItem:
+                imageView.undo();
+                return true;
+            case R.id.redoMenuItem:
+                imageView.redo();
+                return true;
+            case R.id.trailStyleEvenMenuItem:
+                selectTrailStyle(item, TrailStyle.DEFAULT);
+                return true;
+            case R.id.trailStyleFadeMenuItem:
+                selectTrailStyle(item, FADE_TRAIL_STYLE);
+                return true;
+            case R.id.trailStyleEaseMenuItem:
+                selectTrailStyle(item, EASE_TRAIL_STYLE);
+                return true;
+            case R.id.trailStyleShrinkMenuItem:
+                selectTrailStyle(item, SHRINK_TRAIL_STYLE);
+                return true;
+            case R.id.keepSelectionMenuItem:
+                if (!imageView.keepSelection()) {
+                    Toast.makeText(getApplicationContext(), "Move the selection before keeping it", Toast.LENGTH_SHORT).show();
+                }
                 return true;
             default:
                 return super.onOptionsItemSelected(item);
@@ -116,17 +223,52 @@ public class PhotoEditActivity extends AppCompatActivity implements SelectionSta
     public void onAreaSelectionReleased() {
         settingsSelectionView.setVisibility(View.INVISIBLE);
     }
+
+    @Override
+    public void onHistoryChanged(boolean canUndo, boolean canRedo) {
+        if (this.canUndo != canUndo || this.canRedo != canRedo) {
+            this.canUndo = canUndo;
+            this.canRedo = canRedo;
+            invalidateOptionsMenu();
+        }
+    }
     // SelectionStateListener Methods [END]
 
+    // ImageExporter.Listener Methods [START]
+    @Override
+    public void onExportProgress(int progress) {
+        exportProgressBar.setProgress(progress);
+        exportProgressBar.setVisibility(progress < ImageExporter.PROGRESS_DONE ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public void onExportFinished(@Nullable String filePath) {
+        if (filePath == null) {
+            Toast.makeText(getApplicationContext(), "Problem saving image", Toast.LENGTH_SHORT).show();
+        } else {
+            MediaScannerConnection.scanFile(this, new String[]{filePath},
+                    null, null);
+            Toast.makeText(getApplicationContext(), "Image Saved!", Toast.LENGTH_LONG).show();
+        }
+    }
+    // ImageExporter.Listener Methods [END]
+
     // [Private Methods]
     private void initViews() {
         imageView = findViewById(R.id.editableImageView);
         imageView.setSelectionStateChangeListener(this);
+        glTrailView = findViewById(R.id.glTrailView);
+        if (GLTrailView.isSupported(this)) {
+            glTrailView.setVisibility(View.VISIBLE);
+            imageView.setGLTrailView(glTrailView);
+        }
         repCountTextView = findViewById(R.id.repCountIndicatorTextView);
         alphaIndicatorTextView = findViewById(R.id.alphaIndicatorTextView);
         repCountSeekBar = findViewById(R.id.repCountSeekBar);
         alphaSelectionSeekBar = findViewById(R.id.alphaSelectionSeekBar);
         settingsSelectionView = findViewById(R.id.moveSelectionWrapperRelativeLayout);
+        exportProgressBar = findViewById(R.id.exportProgressBar);
+        exportProgressBar.setMax(ImageExporter.PROGRESS_DONE);
         prepareAlphaSelection();
         prepareRepCountSelection();
     }
@@ -141,6 +283,11 @@ public class PhotoEditActivity extends AppCompatActivity implements SelectionSta
                 imageView.updateRepCount(repCount);
                 repCountTextView.setText(String.valueOf(repCount));
             }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+                imageView.commitEdit();
+            }
         });
         repCountSeekBar.setProgress(Constants.DEFAULT_RED_COUNT);
     }
@@ -154,10 +301,20 @@ public class PhotoEditActivity extends AppCompatActivity implements SelectionSta
                 imageView.updateAlpha(alpha);
                 alphaIndicatorTextView.setText(String.valueOf(alpha));
             }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+                imageView.commitEdit();
+            }
         });
         alphaSelectionSeekBar.setProgress(Constants.DEFAULT_ALPHA);
     }
 
+    private void selectTrailStyle(@NonNull MenuItem item, @NonNull TrailStyle style) {
+        item.setChecked(true);
+        imageView.setTrailStyle(style);
+    }
+
     private void startPhotoSelection() {
         final Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
@@ -179,27 +336,67 @@ public class PhotoEditActivity extends AppCompatActivity implements SelectionSta
         }
         final Uri imageUri = data.getData();
         if (imageUri != null) {
+            decodeImage(imageUri);
+        }
+    }
+
+    private void decodeImage(@NonNull Uri imageUri) {
+        if (decodeTask != null) {
+            decodeTask.cancel(true);
+        }
+        final int generation = ++decodeGeneration;
+        final ContentResolver resolver = getContentResolver();
+        final float maxWidth = imageViewWidth;
+        final float maxHeight = imageViewHeight;
+        decodeTask = decodeExecutor.submit(() -> {
             try {
-                final InputStream is = getContentResolver().openInputStream(imageUri);
-                final Bitmap resizedBitmap = BitmapUtils.resize(BitmapFactory.decodeStream(is),
-                        imageViewWidth, imageViewHeight);
-                if (resizedBitmap != null) {
-                    if (resizedBitmap.getWidth() != imageView.getWidth() ||
-                            resizedBitmap.getHeight() != imageView.getHeight()) {
-                        final ViewGroup.LayoutParams layoutParams = imageView.getLayoutParams();
-                        layoutParams.width = resizedBitmap.getWidth();
-                        layoutParams.height = resizedBitmap.getHeight();
-                        imageView.setLayoutParams(layoutParams);
-                    }
-                }
-                imageView.setImageBitmap(resizedBitmap);
-            } catch (FileNotFoundException e) {
+                final long start = Metrics.start();
+                final Bitmap bitmap = BitmapUtils.decodeSampledBitmap(resolver, imageUri, maxWidth, maxHeight);
+                Metrics.stop(Metrics.DECODE, start);
+                runOnUiThread(() -> onImageDecoded(generation, imageUri, bitmap));
+            } catch (IOException | SecurityException e) {
                 e.printStackTrace();
             }
+        });
+    }
+
+    private void onImageDecoded(int generation, @NonNull Uri imageUri, @Nullable Bitmap resizedBitmap) {
+        // a decode posted before a configuration change lands on the destroyed, not finishing, instance
+        if (generation != decodeGeneration || isFinishing() || isDestroyed()) {
+            BitmapPool.get().release(resizedBitmap);
+            return;
+        }
+        decodeTask = null;
+        sourceImageUri = resizedBitmap != null ? imageUri : null;
+        if (resizedBitmap != null) {
+            if (resizedBitmap.getWidth() != imageView.getWidth() ||
+                    resizedBitmap.getHeight() != imageView.getHeight()) {
+                final ViewGroup.LayoutParams layoutParams = imageView.getLayoutParams();
+                layoutParams.width = resizedBitmap.getWidth();
+                layoutParams.height = resizedBitmap.getHeight();
+                imageView.setLayoutParams(layoutParams);
+                final ViewGroup.LayoutParams trailLayoutParams = glTrailView.getLayoutParams();
+                trailLayoutParams.width = resizedBitmap.getWidth();
+                trailLayoutParams.height = resizedBitmap.getHeight();
+                glTrailView.setLayoutParams(trailLayoutParams);
+            }
         }
+        imageView.setImageBitmap(resizedBitmap);
+    }
+
+    private void saveImage(boolean fullResolution) {
+        fullResolutionSave = fullResolution;
+        animationSave = false;
+        requestSave();
+    }
+
+    private void saveAnimation() {
+        fullResolutionSave = false;
+        animationSave = true;
+        requestSave();
     }
 
-    private void saveImage() {
+    private void requestSave() {
         if (ContextCompat.checkSelfPermission(getApplicationContext(),
                 Manifest.permission.WRITE_EXTERNAL_STORAGE)
                 == PackageManager.PERMISSION_GRANTED) {
@@ -211,16 +408,11 @@ public class PhotoEditActivity extends AppCompatActivity implements SelectionSta
     }
 
     private void doSaveImage() {
-        final Bitmap drawnBitmap = imageView.getDrawnBitmap();
-        if (drawnBitmap != null) {
-            String savedFile = FileUtils.saveBitmap(drawnBitmap);
-            if (savedFile == null) {
-                Toast.makeText(getApplicationContext(), "Problem saving image", Toast.LENGTH_SHORT).show();
-            } else {
-                MediaScannerConnection.scanFile(this, new String[]{savedFile},
-                        null, null);
-                Toast.makeText(getApplicationContext(), "Image Saved!", Toast.LENGTH_LONG).show();
-            }
+        final RenderSnapshot snapshot = imageView.snapshotRenderState();
+        if (snapshot != null && animationSave) {
+            imageExporter.exportAnimation(snapshot);
+        } else if (snapshot != null) {
+            imageExporter.export(snapshot, fullResolutionSave ? sourceImageUri : null);
         } else {
             Toast.makeText(getApplicationContext(), "Save after modification", Toast.LENGTH_SHORT).show();
         }
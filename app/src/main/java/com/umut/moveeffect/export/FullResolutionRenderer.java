@@ -0,0 +1,192 @@
+package com.umut.moveeffect.export;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.umut.moveeffect.encode.PngEncoder;
+import com.umut.moveeffect.render.TrailTable;
+import com.umut.moveeffect.util.BitmapPool;
+import com.umut.moveeffect.util.BitmapUtils;
+import com.umut.moveeffect.util.Constants;
+import com.umut.moveeffect.view.RenderSnapshot;
+import com.umut.moveeffect.view.Selection;
+import com.umut.moveeffect.view.TrailPainter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a {@link RenderSnapshot} against the original image instead of the downscaled view bitmap
+ * and streams the result out as a PNG. The output is composited in bands of full width rows: each
+ * band is decoded tile by tile from the source, gets the copies reaching into it drawn on top and is
+ * encoded before the next one starts. Besides one band, one tile and the encoder, only the crops of
+ * the selections are held, each decoded once from its bounding rect, so memory follows the image
+ * width and the selected area rather than the image size.
+ */
+final class FullResolutionRenderer {
+
+    private static final int TILE_WIDTH = 1024;
+    private static final int BAND_HEIGHT = 256;
+
+    private FullResolutionRenderer() {
+
+    }
+
+    static void render(@NonNull ContentResolver resolver, @NonNull Uri sourceUri,
+                       @NonNull RenderSnapshot snapshot, @NonNull OutputStream out) throws IOException {
+        final BitmapRegionDecoder decoder;
+        try (InputStream is = resolver.openInputStream(sourceUri)) {
+            decoder = BitmapRegionDecoder.newInstance(is, false);
+        }
+        try {
+            render(decoder, snapshot, out);
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    private static void render(@NonNull BitmapRegionDecoder decoder, @NonNull RenderSnapshot snapshot,
+                               @NonNull OutputStream out) throws IOException {
+        final int width = decoder.getWidth();
+        final int height = decoder.getHeight();
+        if (width <= 0 || height <= 0 || snapshot.getWidth() <= 0 || snapshot.getHeight() <= 0) {
+            throw new IOException("Empty image " + width + "x" + height);
+        }
+        final float scaleX = (float) width / snapshot.getWidth();
+        final float scaleY = (float) height / snapshot.getHeight();
+
+        final List<ScaledSelection> selections = new ArrayList<>(snapshot.getSelectionCount());
+        Bitmap band = null;
+        // every tile is decoded into the previous one. The region decoder never resizes its target, so
+        // the first one has the full tile size and tiles at the right and bottom only fill its top left
+        final BitmapFactory.Options tileOptions = new BitmapFactory.Options();
+        tileOptions.inMutable = true;
+        try {
+            final Matrix scaleMatrix = new Matrix();
+            scaleMatrix.setScale(scaleX, scaleY);
+            for (int i = 0; i < snapshot.getSelectionCount(); i++) {
+                final ScaledSelection selection = cropSelection(decoder, snapshot.getSelection(i), scaleMatrix,
+                        scaleX, scaleY);
+                if (selection != null) {
+                    selections.add(selection);
+                }
+            }
+
+            band = BitmapPool.get().acquire(width, Math.min(BAND_HEIGHT, height), Bitmap.Config.ARGB_8888);
+            tileOptions.inBitmap = BitmapPool.get().acquire(Math.min(TILE_WIDTH, width),
+                    Math.min(BAND_HEIGHT, height), Bitmap.Config.ARGB_8888);
+            final Canvas canvas = new Canvas(band);
+            final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_OVER));
+            final Rect tileRect = new Rect();
+            final RectF scratch = new RectF();
+            final PngEncoder encoder = new PngEncoder(out, width, height);
+            final int[] row = new int[width];
+            for (int bandTop = 0; bandTop < height; bandTop += BAND_HEIGHT) {
+                final int bandBottom = Math.min(bandTop + BAND_HEIGHT, height);
+                band.eraseColor(Color.TRANSPARENT);
+                for (int left = 0; left < width; left += TILE_WIDTH) {
+                    tileRect.set(left, bandTop, Math.min(left + TILE_WIDTH, width), bandBottom);
+                    final Bitmap tile = decoder.decodeRegion(tileRect, tileOptions);
+                    if (tile != null) {
+                        canvas.drawBitmap(tile, left, 0, null);
+                        tileOptions.inBitmap = tile;
+                    }
+                }
+                canvas.save();
+                // copies outside of the band are rejected against its clip
+                canvas.translate(0, -bandTop);
+                for (int i = 0; i < selections.size(); i++) {
+                    selections.get(i).draw(canvas, scaleX, scaleY, scratch, paint);
+                }
+                canvas.restore();
+                for (int y = 0; y < bandBottom - bandTop; y++) {
+                    band.getPixels(row, 0, width, 0, y, width, 1);
+                    encoder.addRow(row, 0);
+                }
+            }
+            encoder.finish();
+        } finally {
+            BitmapPool.get().release(band);
+            BitmapPool.get().release(tileOptions.inBitmap);
+            for (int i = 0; i < selections.size(); i++) {
+                BitmapPool.get().release(selections.get(i).crop);
+            }
+        }
+    }
+
+    /**
+     * @return the selection cut out of the source at full resolution, or null when it lies outside
+     */
+    @Nullable
+    private static ScaledSelection cropSelection(@NonNull BitmapRegionDecoder decoder, @NonNull Selection selection,
+                                                 @NonNull Matrix scaleMatrix, float scaleX, float scaleY) {
+        final Path scaledPath = selection.getSelectionPath();
+        scaledPath.transform(scaleMatrix);
+        // the feathering keeps its width relative to the selection at the export resolution
+        final int featherRadius = Math.round(Constants.FEATHER_RADIUS * Math.max(scaleX, scaleY));
+        final Rect selectionRect = BitmapUtils.getCropRect(scaledPath, featherRadius);
+        final Rect decodeRect = new Rect(selectionRect);
+        if (!decodeRect.intersect(0, 0, decoder.getWidth(), decoder.getHeight())) {
+            return null;
+        }
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inMutable = true;
+        options.inBitmap = BitmapPool.get().acquire(decodeRect.width(), decodeRect.height(), Bitmap.Config.ARGB_8888);
+        final Bitmap selectionSource = decoder.decodeRegion(decodeRect, options);
+        if (selectionSource == null) {
+            BitmapPool.get().release(options.inBitmap);
+            return null;
+        }
+        scaledPath.offset(-decodeRect.left, -decodeRect.top);
+        final Bitmap croppedBitmap = BitmapUtils.getCroppedBitmap(selectionSource, scaledPath, featherRadius);
+        BitmapPool.get().release(selectionSource);
+        if (croppedBitmap == null) {
+            return null;
+        }
+        return new ScaledSelection(croppedBitmap, new RectF(selectionRect), selection.getTrail());
+    }
+
+    private static final class ScaledSelection {
+
+        @NonNull
+        final Bitmap crop;
+        @NonNull
+        final RectF rect;
+        @NonNull
+        final TrailTable trail;
+
+        ScaledSelection(@NonNull Bitmap crop, @NonNull RectF rect, @NonNull TrailTable trail) {
+            this.crop = crop;
+            this.rect = rect;
+            this.trail = trail;
+        }
+
+        /**
+         * Draws the copies and then the selection on top, with offsets recorded in view coordinates
+         * scaled to the output.
+         */
+        void draw(@NonNull Canvas canvas, float scaleX, float scaleY, @NonNull RectF scratch, @NonNull Paint paint) {
+            paint.setAlpha(255);
+            TrailPainter.drawCopies(canvas, crop, rect, trail, scaleX, scaleY, scratch, paint);
+            canvas.drawBitmap(crop, null, rect, paint);
+        }
+    }
+}
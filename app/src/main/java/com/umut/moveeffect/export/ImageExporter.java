@@ -0,0 +1,195 @@
+package com.umut.moveeffect.export;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.umut.moveeffect.util.Constants;
+import com.umut.moveeffect.util.FileUtils;
+import com.umut.moveeffect.view.RenderSnapshot;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Composites and encodes snapshots on a single worker thread. Exports requested while one is
+ * running are coalesced per kind: the latest image and the latest animation are kept and started
+ * once the current export finishes, so asking for one never drops a queued request for the other.
+ * Must be driven from the main thread.
+ */
+public final class ImageExporter {
+
+    public static final int PROGRESS_STARTED = 0;
+    public static final int PROGRESS_COMPOSITED = 50;
+    public static final int PROGRESS_DONE = 100;
+
+    public interface Listener {
+        void onExportProgress(int progress);
+
+        void onExportFinished(@Nullable String filePath);
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    @NonNull
+    private final Listener listener;
+
+    @Nullable
+    private RenderSnapshot pendingImage;
+    @Nullable
+    private Uri pendingSourceUri;
+    @Nullable
+    private RenderSnapshot pendingAnimation;
+    private boolean running;
+    private boolean shutdown;
+
+    @NonNull
+    private final ContentResolver resolver;
+
+    public ImageExporter(@NonNull ContentResolver resolver, @NonNull Listener listener) {
+        this.resolver = resolver;
+        this.listener = listener;
+    }
+
+    public void export(@NonNull RenderSnapshot snapshot) {
+        export(snapshot, null);
+    }
+
+    /**
+     * Saves the output as a PNG streamed at the resolution of {@code sourceUri}, or as a JPEG at view
+     * resolution when there is no source or replaying it fails.
+     *
+     * @param sourceUri original image to replay the snapshot against at full resolution, or null to
+     *                  export at view resolution
+     */
+    public void export(@NonNull RenderSnapshot snapshot, @Nullable Uri sourceUri) {
+        enqueue(snapshot, sourceUri, false);
+    }
+
+    /**
+     * Saves the trails of {@code snapshot} appearing copy by copy as an animated GIF at view
+     * resolution. Frames are encoded and written one at a time.
+     */
+    public void exportAnimation(@NonNull RenderSnapshot snapshot) {
+        enqueue(snapshot, null, true);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        if (pendingImage != null) {
+            pendingImage.release();
+            pendingImage = null;
+        }
+        pendingSourceUri = null;
+        if (pendingAnimation != null) {
+            pendingAnimation.release();
+            pendingAnimation = null;
+        }
+        executor.shutdown();
+    }
+
+    private void enqueue(@NonNull RenderSnapshot snapshot, @Nullable Uri sourceUri, boolean animation) {
+        if (shutdown) {
+            snapshot.release();
+            return;
+        }
+        if (running) {
+            if (animation) {
+                if (pendingAnimation != null) {
+                    pendingAnimation.release();
+                }
+                pendingAnimation = snapshot;
+            } else {
+                if (pendingImage != null) {
+                    pendingImage.release();
+                }
+                pendingImage = snapshot;
+                pendingSourceUri = sourceUri;
+            }
+            return;
+        }
+        start(snapshot, sourceUri, animation);
+    }
+
+    private void start(@NonNull RenderSnapshot snapshot, @Nullable Uri sourceUri, boolean animation) {
+        running = true;
+        listener.onExportProgress(PROGRESS_STARTED);
+        executor.execute(() -> {
+            String filePath = null;
+            try {
+                if (animation) {
+                    filePath = FileUtils.saveAnimation(out -> snapshot.writeAnimation(out,
+                            Constants.ANIMATION_FRAME_DELAY_MS, Constants.ANIMATION_HOLD_DELAY_MS));
+                } else {
+                    if (sourceUri != null) {
+                        filePath = saveFullResolution(snapshot, sourceUri);
+                    }
+                    if (filePath == null) {
+                        final Bitmap output = snapshot.render();
+                        // the crops are not needed while encoding
+                        snapshot.release();
+                        postProgress(PROGRESS_COMPOSITED);
+                        filePath = FileUtils.saveBitmap(output);
+                    }
+                }
+            } catch (RuntimeException | OutOfMemoryError e) {
+                e.printStackTrace();
+            } finally {
+                // a failed export must not keep later ones queued behind it
+                snapshot.release();
+                final String result = filePath;
+                mainHandler.post(() -> onFinished(result));
+            }
+        });
+    }
+
+    /**
+     * @return path of the PNG replayed against the original image, or null when that failed and the
+     * view resolution output has to do
+     */
+    @Nullable
+    private String saveFullResolution(@NonNull RenderSnapshot snapshot, @NonNull Uri sourceUri) {
+        try {
+            return FileUtils.savePng(out -> FullResolutionRenderer.render(resolver, sourceUri, snapshot, out));
+        } catch (OutOfMemoryError e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void postProgress(int progress) {
+        mainHandler.post(() -> {
+            if (!shutdown) {
+                listener.onExportProgress(progress);
+            }
+        });
+    }
+
+    private void onFinished(@Nullable String filePath) {
+        running = false;
+        if (shutdown) {
+            return;
+        }
+        listener.onExportProgress(PROGRESS_DONE);
+        listener.onExportFinished(filePath);
+        if (pendingImage != null) {
+            final RenderSnapshot snapshot = pendingImage;
+            final Uri sourceUri = pendingSourceUri;
+            pendingImage = null;
+            pendingSourceUri = null;
+            start(snapshot, sourceUri, false);
+        } else if (pendingAnimation != null) {
+            final RenderSnapshot snapshot = pendingAnimation;
+            pendingAnimation = null;
+            start(snapshot, null, true);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.umut.moveeffect.util;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.umut.moveeffect.metrics.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Process wide pool of mutable bitmaps under a byte budget. Released bitmaps are bucketed by the
+ * power of two below their allocation size and handed out again, reconfigured to the requested size,
+ * to any request they are large enough for. A request only looks one bucket above its own, so a
+ * small request never pins an allocation more than four times its size. The least recently released
+ * bitmaps are recycled first once the budget is exceeded. Safe to use from any thread.
+ */
+public final class BitmapPool {
+
+    private static final int BUCKET_COUNT = 32;
+    private static final int MAX_BUCKET_STEPS = 1;
+    private static final BitmapPool INSTANCE = new BitmapPool(Constants.DEFAULT_BITMAP_POOL_BYTES);
+
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Bitmap>[] buckets = new ArrayDeque[BUCKET_COUNT];
+    // every pooled bitmap in release order, oldest first
+    private final ArrayDeque<Bitmap> releaseOrder = new ArrayDeque<>();
+    private int maxBytes;
+    private int size;
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    public BitmapPool(int maxBytes) {
+        this.maxBytes = maxBytes;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    @NonNull
+    public static BitmapPool get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return a transparent {@code width} x {@code height} mutable bitmap, from the pool when one is
+     * large enough
+     */
+    @NonNull
+    public Bitmap acquire(int width, int height, @NonNull Bitmap.Config config) {
+        final Bitmap bitmap = poll(width * height * getBytesPerPixel(config));
+        if (bitmap == null) {
+            final Bitmap created = Bitmap.createBitmap(width, height, config);
+            Metrics.countBitmapBytes(created.getAllocationByteCount());
+            return created;
+        }
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height || bitmap.getConfig() != config) {
+            bitmap.reconfigure(width, height, config);
+        }
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * @return a pooled bitmap of at least {@code byteCount} bytes to decode into through
+     * {@code BitmapFactory.Options.inBitmap}, or null when there is none. It keeps whatever size,
+     * config and pixels it had, which only {@code BitmapFactory} adapts; a
+     * {@code BitmapRegionDecoder} target has to come from {@link #acquire(int, int, Bitmap.Config)}.
+     */
+    @Nullable
+    public Bitmap acquireForDecode(int byteCount) {
+        return poll(byteCount);
+    }
+
+    /**
+     * Hands {@code bitmap} over to the pool. Immutable bitmaps and bitmaps larger than the budget
+     * are recycled instead.
+     */
+    public void release(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        final int byteCount = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || byteCount > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (this) {
+            buckets[bucketOf(byteCount)].addLast(bitmap);
+            releaseOrder.addLast(bitmap);
+            size += byteCount;
+            trimToSize(maxBytes);
+        }
+    }
+
+    public synchronized void setMaxSize(int maxBytes) {
+        this.maxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * Gives memory back according to a {@link ComponentCallbacks2} trim level.
+     */
+    public synchronized void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            trimToSize(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(maxBytes / 2);
+        }
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    public synchronized int getMaxSize() {
+        return maxBytes;
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        final int accesses = hitCount + missCount;
+        final int hitPercent = accesses != 0 ? (100 * hitCount / accesses) : 0;
+        return String.format(Locale.US, "BitmapPool[size=%d,maxSize=%d,hits=%d,misses=%d,evictions=%d,hitRate=%d%%]",
+                size, maxBytes, hitCount, missCount, evictionCount, hitPercent);
+    }
+
+    @Nullable
+    private synchronized Bitmap poll(int byteCount) {
+        final int firstBucket = bucketOf(byteCount);
+        final int lastBucket = Math.min(firstBucket + MAX_BUCKET_STEPS, BUCKET_COUNT - 1);
+        for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            final Iterator<Bitmap> iterator = buckets[bucket].descendingIterator();
+            while (iterator.hasNext()) {
+                final Bitmap bitmap = iterator.next();
+                if (bitmap.getAllocationByteCount() >= byteCount) {
+                    iterator.remove();
+                    releaseOrder.remove(bitmap);
+                    size -= bitmap.getAllocationByteCount();
+                    hitCount++;
+                    return bitmap;
+                }
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    private void trimToSize(int maxSize) {
+        while (size > maxSize && !releaseOrder.isEmpty()) {
+            final Bitmap bitmap = releaseOrder.pollFirst();
+            final int byteCount = bitmap.getAllocationByteCount();
+            buckets[bucketOf(byteCount)].remove(bitmap);
+            size -= byteCount;
+            evictionCount++;
+            bitmap.recycle();
+        }
+    }
+
+    private static int bucketOf(int byteCount) {
+        return byteCount <= 1 ? 0 : 31 - Integer.numberOfLeadingZeros(byteCount);
+    }
+
+    private static int getBytesPerPixel(@NonNull Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+}
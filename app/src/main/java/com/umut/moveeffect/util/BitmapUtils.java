@@ -1,40 +1,236 @@
 package com.umut.moveeffect.util;
 
+import android.content.ContentResolver;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
+import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.umut.moveeffect.metrics.Metrics;
+import com.umut.moveeffect.raster.ArgbBuffer;
+import com.umut.moveeffect.raster.ArgbUtils;
+import com.umut.moveeffect.raster.MaskFeather;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
 public final class BitmapUtils {
     private BitmapUtils() {
 
     }
 
+    /**
+     * Lifts the area inside {@code path} out of {@code src}. Only the bounding rect of the path is
+     * composited, into a bitmap from the {@link BitmapPool}.
+     */
+    @Nullable
     public static Bitmap getCroppedBitmap(@NonNull Bitmap src, @NonNull Path path) {
-        final Bitmap output = Bitmap.createBitmap(src.getWidth(),
-                src.getHeight(), Bitmap.Config.ARGB_8888);
+        return getCroppedBitmap(src, path, 0);
+    }
+
+    /**
+     * Like {@link #getCroppedBitmap(Bitmap, Path)} with the edge of the selection faded out over
+     * about {@code featherRadius} pixels on each side. The anti-aliased coverage of the path is drawn
+     * into an alpha mask over the rect returned by {@link #getCropRect(Path, int)}, blurred once by
+     * {@link MaskFeather} and then used to cut the source out.
+     */
+    @Nullable
+    public static Bitmap getCroppedBitmap(@NonNull Bitmap src, @NonNull Path path, int featherRadius) {
+        final Rect rect = getCropRect(path, featherRadius);
+        if (rect.isEmpty()) {
+            return null;
+        }
+        final long start = Metrics.start();
+        final Bitmap output = BitmapPool.get().acquire(rect.width(), rect.height(), Bitmap.Config.ARGB_8888);
         final Canvas canvas = new Canvas(output);
 
         final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
         paint.setColor(0XFF000000);
 
-        canvas.save();
-        canvas.drawPath(path, paint);
+        canvas.translate(-rect.left, -rect.top);
+        if (featherRadius > 0) {
+            final Bitmap mask = getFeatheredMask(path, rect, featherRadius);
+            canvas.drawBitmap(mask, rect.left, rect.top, paint);
+            BitmapPool.get().release(mask);
+        } else {
+            canvas.drawPath(path, paint);
+        }
         paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
         canvas.drawBitmap(src, 0, 0, paint);
-        canvas.restore();
+        Metrics.stop(Metrics.CROP, start);
+        return output;
+    }
 
+    /**
+     * @return the area {@link #getCroppedBitmap(Bitmap, Path, int)} covers, the bounding rect of
+     * {@code path} grown by the reach of the feathering
+     */
+    @NonNull
+    public static Rect getCropRect(@NonNull Path path, int featherRadius) {
         final Rect rect = PointUtils.getRectOfPath(path);
-        final Bitmap croppedBmp = Bitmap.createBitmap(output, rect.left, rect.top, rect.width(), rect.height());
-        if (croppedBmp != output && !output.isRecycled()) {
-            output.recycle();
+        if (!rect.isEmpty() && featherRadius > 0) {
+            final int padding = MaskFeather.getPadding(featherRadius);
+            rect.inset(-padding, -padding);
+        }
+        return rect;
+    }
+
+    @NonNull
+    private static Bitmap getFeatheredMask(@NonNull Path path, @NonNull Rect rect, int featherRadius) {
+        final Bitmap mask = BitmapPool.get().acquire(rect.width(), rect.height(), Bitmap.Config.ALPHA_8);
+        final Canvas canvas = new Canvas(mask);
+        canvas.translate(-rect.left, -rect.top);
+        canvas.drawPath(path, new Paint(Paint.ANTI_ALIAS_FLAG));
+
+        final byte[] coverage = new byte[mask.getRowBytes() * mask.getHeight()];
+        final ByteBuffer buffer = ByteBuffer.wrap(coverage);
+        mask.copyPixelsToBuffer(buffer);
+        MaskFeather.blur(coverage, mask.getWidth(), mask.getHeight(), mask.getRowBytes(), featherRadius);
+        buffer.rewind();
+        mask.copyPixelsFromBuffer(buffer);
+        return mask;
+    }
+
+    /**
+     * @return a mutable copy of {@code src} in a bitmap from the {@link BitmapPool}
+     */
+    @NonNull
+    public static Bitmap copy(@NonNull Bitmap src) {
+        final Bitmap output = BitmapPool.get().acquire(src.getWidth(), src.getHeight(), Bitmap.Config.ARGB_8888);
+        new Canvas(output).drawBitmap(src, 0, 0, null);
+        return output;
+    }
+
+    /**
+     * @return the pixels of {@code src} premultiplied, the layout the raster core works on
+     */
+    @NonNull
+    public static ArgbBuffer toArgbBuffer(@NonNull Bitmap src) {
+        final int width = src.getWidth();
+        final int height = src.getHeight();
+        final int[] pixels = new int[width * height];
+        src.getPixels(pixels, 0, width, 0, 0, width, height);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = ArgbUtils.premultiply(pixels[i]);
+        }
+        return new ArgbBuffer(width, height, pixels);
+    }
+
+    /**
+     * @return a copy of the pixels of the ARGB_8888 {@code src} as they are stored: premultiplied,
+     * alpha in the top byte and red and blue swapped on the little-endian devices Android runs on.
+     * Blending treats the color channels alike, so buffers read this way composite correctly with
+     * each other without the conversions of {@link #toArgbBuffer(Bitmap)}.
+     */
+    @NonNull
+    public static ArgbBuffer readStoredPixels(@NonNull Bitmap src) {
+        final int[] pixels = new int[src.getWidth() * src.getHeight()];
+        src.copyPixelsToBuffer(IntBuffer.wrap(pixels));
+        return new ArgbBuffer(src.getWidth(), src.getHeight(), pixels);
+    }
+
+    /**
+     * Overwrites the pixels of the ARGB_8888 {@code dst} with {@code src} as read by
+     * {@link #readStoredPixels(Bitmap)}. Both have to be the same size; {@code src} is not modified.
+     */
+    public static void writeStoredPixels(@NonNull Bitmap dst, @NonNull ArgbBuffer src) {
+        dst.copyPixelsFromBuffer(IntBuffer.wrap(src.getPixels(), 0, src.getWidth() * src.getHeight()));
+    }
+
+    /**
+     * Decodes the image behind {@code uri} close to the given bounds. The bounds are read first, the
+     * image is subsampled by a power of two and the remaining factor is applied through the density
+     * scaling of the decoder, so the full resolution bitmap is never allocated. The decoder writes
+     * into a pooled bitmap when one is large enough.
+     */
+    @Nullable
+    public static Bitmap decodeSampledBitmap(@NonNull ContentResolver resolver, @NonNull Uri uri,
+                                             float maxWidth, float maxHeight) throws IOException {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream is = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(is, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        prepareSampling(options, maxWidth, maxHeight);
+        if (Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        options.inMutable = true;
+        options.inBitmap = BitmapPool.get().acquireForDecode(getDecodedByteCount(options));
+        Bitmap decoded;
+        try (InputStream is = resolver.openInputStream(uri)) {
+            decoded = BitmapFactory.decodeStream(is, null, options);
+        } catch (IllegalArgumentException e) {
+            // the pooled bitmap did not fit after all, decode into a new one
+            decoded = null;
+        }
+        if (decoded == null && options.inBitmap != null) {
+            BitmapPool.get().release(options.inBitmap);
+            options.inBitmap = null;
+            try (InputStream is = resolver.openInputStream(uri)) {
+                decoded = BitmapFactory.decodeStream(is, null, options);
+            }
+        }
+        if (decoded != null && decoded != options.inBitmap) {
+            Metrics.countBitmapBytes(decoded.getAllocationByteCount());
+        }
+        if (decoded != null && Thread.currentThread().isInterrupted()) {
+            BitmapPool.get().release(decoded);
+            return null;
+        }
+        return resize(decoded, maxWidth, maxHeight);
+    }
+
+    /**
+     * @return upper bound of the size {@code options} decode to, one extra row and column for the
+     * rounding of the sampling and the density scaling
+     */
+    private static int getDecodedByteCount(@NonNull BitmapFactory.Options options) {
+        final int sampleSize = Math.max(options.inSampleSize, 1);
+        long width = options.outWidth / sampleSize + 1;
+        long height = options.outHeight / sampleSize + 1;
+        if (options.inScaled && options.inDensity > 0 && options.inTargetDensity > 0) {
+            width = width * options.inTargetDensity / options.inDensity + 1;
+            height = height * options.inTargetDensity / options.inDensity + 1;
+        }
+        return (int) Math.min(width * height * 4, Integer.MAX_VALUE);
+    }
+
+    private static void prepareSampling(@NonNull BitmapFactory.Options options, float maxWidth, float maxHeight) {
+        final int width = options.outWidth;
+        final int height = options.outHeight;
+        options.inJustDecodeBounds = false;
+        if (maxWidth <= 0 || maxHeight <= 0) {
+            return;
+        }
+        final float scale = Math.min(maxWidth / width, maxHeight / height);
+        if (scale >= 1f) {
+            return;
+        }
+        final int targetWidth = Math.max(1, (int) (width * scale));
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= targetWidth) {
+            sampleSize *= 2;
+        }
+        options.inSampleSize = sampleSize;
+        final int sampledWidth = width / sampleSize;
+        if (sampledWidth > targetWidth) {
+            options.inScaled = true;
+            options.inDensity = sampledWidth;
+            options.inTargetDensity = targetWidth;
         }
-        return croppedBmp;
     }
 
     public static Bitmap resize(@Nullable Bitmap image, float maxWidth, float maxHeight) {
@@ -51,10 +247,14 @@ public final class BitmapUtils {
             } else {
                 finalHeight = (int) (maxWidth / ratioBitmap);
             }
-            final Bitmap resizedBitmap = Bitmap.createScaledBitmap(image, (int) finalWidth, (int) finalHeight, false);
-            if (resizedBitmap != image) {
-                image.recycle();
+            if ((int) finalWidth == width && (int) finalHeight == height) {
+                return image;
             }
+            final Bitmap resizedBitmap = BitmapPool.get().acquire((int) finalWidth, (int) finalHeight,
+                    Bitmap.Config.ARGB_8888);
+            new Canvas(resizedBitmap).drawBitmap(image, null,
+                    new Rect(0, 0, (int) finalWidth, (int) finalHeight), null);
+            BitmapPool.get().release(image);
             return resizedBitmap;
         } else {
             return image;
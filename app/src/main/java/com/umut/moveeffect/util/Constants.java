@@ -1,5 +1,7 @@
 package com.umut.moveeffect.util;
 
+import com.umut.moveeffect.raster.MaskFeather;
+
 public final class Constants {
 
     private Constants() {
@@ -9,7 +11,9 @@ public final class Constants {
     public static final float INITIAL_CIRCLE_RADIUS = 8f;
     public static final float INTERSECT_DEVIATION = INITIAL_CIRCLE_RADIUS * 2;
     public static final float SNAP_DISTANCE = INITIAL_CIRCLE_RADIUS * 5;
-    public static final float MIN_ALLOWED_SNAP_AREA = 30f;
+    public static final float MIN_ALLOWED_SNAP_AREA = 30f * 30f;
+    public static final float MIN_STROKE_STEP = 4f;
+    public static final float SEGMENT_GRID_CELL_SIZE = 32f;
 
     public static final int MIN_REP_COUNT = 3;
     public static final int MAX_REP_COUNT = 50;
@@ -19,4 +23,16 @@ public final class Constants {
     public static final int MIN_ALPHA = 1;
     public static final int MAX_ALPHA = 100;
 
+    public static final int FEATHER_RADIUS = MaskFeather.DEFAULT_RADIUS;
+
+    public static final int PREVIEW_MAX_PIXELS = 256 * 256;
+    public static final int PREVIEW_MAX_COPIES = 8;
+
+    public static final int ANIMATION_FRAME_DELAY_MS = 80;
+    public static final int ANIMATION_HOLD_DELAY_MS = 1500;
+
+    public static final int MAX_HISTORY_SIZE = 50;
+    public static final int DEFAULT_CROP_CACHE_BYTES = 16 * 1024 * 1024;
+    public static final int DEFAULT_BITMAP_POOL_BYTES = 24 * 1024 * 1024;
+
 }
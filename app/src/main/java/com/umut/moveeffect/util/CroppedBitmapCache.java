@@ -0,0 +1,60 @@
+package com.umut.moveeffect.util;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+import com.umut.moveeffect.recipe.SelectionKey;
+
+/**
+ * LRU cache of cropped selections under a byte budget. Crops can always be derived again from their
+ * recipe, so evicting is safe; evicted bitmaps go back to the {@link BitmapPool} to be reused by the
+ * next crop instead of being recycled.
+ */
+public final class CroppedBitmapCache {
+
+    @NonNull
+    private final LruCache<SelectionKey, Bitmap> cache;
+
+    public CroppedBitmapCache(int maxBytes) {
+        cache = new LruCache<SelectionKey, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(@NonNull SelectionKey key, @NonNull Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, @NonNull SelectionKey key,
+                                        @NonNull Bitmap oldValue, @Nullable Bitmap newValue) {
+                // entries taken out through take() belong to the caller
+                if (evicted || (newValue != null && newValue != oldValue)) {
+                    BitmapPool.get().release(oldValue);
+                }
+            }
+        };
+    }
+
+    public void put(@NonNull SelectionKey key, @NonNull Bitmap bitmap) {
+        if (!bitmap.isRecycled()) {
+            cache.put(key, bitmap);
+        }
+    }
+
+    /**
+     * Removes the crop for {@code key} from the cache and hands it over to the caller.
+     */
+    @Nullable
+    public Bitmap take(@NonNull SelectionKey key) {
+        final Bitmap bitmap = cache.remove(key);
+        return bitmap == null || bitmap.isRecycled() ? null : bitmap;
+    }
+
+    public void setMaxSize(int maxBytes) {
+        cache.resize(maxBytes);
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+}
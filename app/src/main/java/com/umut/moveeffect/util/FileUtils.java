@@ -5,22 +5,49 @@ import android.os.Environment;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.umut.moveeffect.metrics.LatencyHistogram;
+import com.umut.moveeffect.metrics.Metrics;
+
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
 
 public final class FileUtils {
     private static final String DIRECTORY_NAME = "MoveEffect";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Streams the content of a file being saved.
+     */
+    public interface ContentWriter {
+        void write(@NonNull OutputStream out) throws IOException;
+    }
 
     private FileUtils() {
 
     }
 
+    /**
+     * Saves {@code bmp} as a JPEG to the album and hands it back to the {@link BitmapPool}, whether
+     * the save succeeded or not.
+     */
     @Nullable
     public static String saveBitmap(@Nullable Bitmap bmp) {
         if (bmp == null) {
             return null;
         }
+        try {
+            return saveJpeg(bmp);
+        } finally {
+            BitmapPool.get().release(bmp);
+        }
+    }
+
+    @Nullable
+    private static String saveJpeg(@NonNull Bitmap bmp) {
         if (!isExternalStorageWritable()) {
             return null;
         }
@@ -30,24 +57,67 @@ public final class FileUtils {
         if (albumFile == null) {
             return null;
         }
-        FileOutputStream outputStream = null;
-        try {
-            outputStream = new FileOutputStream(albumFile);
+        final long start = Metrics.start();
+        try (FileOutputStream fileStream = new FileOutputStream(albumFile);
+             OutputStream outputStream = new BufferedOutputStream(
+                     Channels.newOutputStream(fileStream.getChannel()), BUFFER_SIZE)) {
             bmp.compress(Bitmap.CompressFormat.JPEG, 80, outputStream);
-            bmp.recycle();
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         } finally {
-            try {
-                outputStream.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            Metrics.stop(Metrics.SAVE, start);
         }
         return albumFile.getAbsolutePath();
     }
 
+    /**
+     * Saves an animated GIF written by {@code writer} straight to the album, a partially written file
+     * is deleted.
+     */
+    @Nullable
+    public static String saveAnimation(@NonNull ContentWriter writer) {
+        return saveStream(writer, ".gif", Metrics.SAVE_ANIMATION);
+    }
+
+    /**
+     * Saves a PNG written by {@code writer} straight to the album, a partially written file is
+     * deleted.
+     */
+    @Nullable
+    public static String savePng(@NonNull ContentWriter writer) {
+        return saveStream(writer, ".png", Metrics.SAVE_FULL_RESOLUTION);
+    }
+
+    @Nullable
+    private static String saveStream(@NonNull ContentWriter writer, @NonNull String extension,
+                                     @NonNull LatencyHistogram histogram) {
+        if (!isExternalStorageWritable()) {
+            return null;
+        }
+        final String fileName = "m_" + System.currentTimeMillis() + extension;
+        final File albumFile = getPublicAlbumStorageDir(DIRECTORY_NAME, fileName);
+        if (albumFile == null) {
+            return null;
+        }
+        final long start = Metrics.start();
+        boolean written = false;
+        try (FileOutputStream fileStream = new FileOutputStream(albumFile);
+             OutputStream outputStream = new BufferedOutputStream(
+                     Channels.newOutputStream(fileStream.getChannel()), BUFFER_SIZE)) {
+            writer.write(outputStream);
+            written = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            Metrics.stop(histogram, start);
+            if (!written) {
+                albumFile.delete();
+            }
+        }
+        return written ? albumFile.getAbsolutePath() : null;
+    }
+
     private static boolean isExternalStorageWritable() {
         String state = Environment.getExternalStorageState();
         if (Environment.MEDIA_MOUNTED.equals(state)) {
@@ -0,0 +1,25 @@
+package com.umut.moveeffect.util;
+
+import android.util.Log;
+
+import com.umut.moveeffect.metrics.LatencyHistogram;
+import com.umut.moveeffect.metrics.MetricsReporter;
+
+import java.util.List;
+
+/**
+ * Writes the collected metrics to logcat, one line per histogram.
+ */
+public final class LogMetricsReporter implements MetricsReporter {
+
+    private static final String TAG = "Metrics";
+
+    @Override
+    public void report(List<LatencyHistogram> histograms, long touchEventCount, long allocatedBitmapBytes) {
+        for (LatencyHistogram histogram : histograms) {
+            Log.i(TAG, histogram.toString());
+        }
+        Log.i(TAG, "touchEvents=" + touchEventCount + ", allocatedBitmapBytes=" + allocatedBitmapBytes);
+        Log.i(TAG, BitmapPool.get().toString());
+    }
+}
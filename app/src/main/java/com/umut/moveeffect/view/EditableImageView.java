@@ -12,16 +12,34 @@ import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.BitmapDrawable;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v7.widget.AppCompatImageView;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 
+import com.umut.moveeffect.geometry.ClosureDetector;
+import com.umut.moveeffect.geometry.Polygon;
+import com.umut.moveeffect.geometry.SegmentGrid;
+import com.umut.moveeffect.metrics.Metrics;
+import com.umut.moveeffect.recipe.EditHistory;
+import com.umut.moveeffect.recipe.EffectRecipe;
+import com.umut.moveeffect.recipe.RecipeCodec;
+import com.umut.moveeffect.recipe.SelectionKey;
+import com.umut.moveeffect.render.TrailStyle;
+import com.umut.moveeffect.render.TrailTable;
+import com.umut.moveeffect.util.BitmapPool;
 import com.umut.moveeffect.util.BitmapUtils;
 import com.umut.moveeffect.util.Constants;
+import com.umut.moveeffect.util.CroppedBitmapCache;
 import com.umut.moveeffect.util.PointUtils;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 public class EditableImageView extends AppCompatImageView {
 
     private static final int LINE_COLOR = Color.GRAY;
@@ -31,6 +49,15 @@ public class EditableImageView extends AppCompatImageView {
     @NonNull
     private final Path selectionPath = new Path();
     @NonNull
+    private final Polygon selectionPolygon = new Polygon();
+    @NonNull
+    private final ClosureDetector closureDetector = new ClosureDetector(Constants.SNAP_DISTANCE,
+            Constants.MIN_ALLOWED_SNAP_AREA, Constants.INTERSECT_DEVIATION, (int) Constants.INTERSECT_DEVIATION);
+    @NonNull
+    private final SegmentGrid segmentGrid = new SegmentGrid(Constants.SEGMENT_GRID_CELL_SIZE);
+    @NonNull
+    private final float[] crossingPoint = new float[2];
+    @NonNull
     private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     @NonNull
     private final Paint circlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
@@ -39,6 +66,14 @@ public class EditableImageView extends AppCompatImageView {
     @NonNull
     private final Paint copyBitmapPath = new Paint(Paint.ANTI_ALIAS_FLAG);
     @NonNull
+    private final Paint keptSelectionPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    // nearest sampling for the drag preview
+    @NonNull
+    private final Paint previewPaint = new Paint();
+    // filtered sampling when building the downscaled preview source
+    @NonNull
+    private final Paint downsamplePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    @NonNull
     private final PointF initialPoint = new PointF(-Constants.INITIAL_CIRCLE_RADIUS, -Constants.INITIAL_CIRCLE_RADIUS);
     @NonNull
     private final PointF lastPoint = new PointF();
@@ -47,17 +82,74 @@ public class EditableImageView extends AppCompatImageView {
     @NonNull
     private final PointF lastDragPoint = new PointF();
     @NonNull
+    private final PointF touchPoint = new PointF();
+    @NonNull
+    private final int[] locationOnScreen = new int[2];
+    @NonNull
     private final Rect selectionRect = new Rect();
     @NonNull
     private final RectF drawRect = new RectF();
+    @NonNull
+    private final RectF copyRect = new RectF();
+    @NonNull
+    private final RectF trailRect = new RectF();
+    @NonNull
+    private final Rect trailBounds = new Rect();
+    @NonNull
+    private final Canvas trailCanvas = new Canvas();
+    @NonNull
+    private final RectF dirtyRectF = new RectF();
+    @NonNull
+    private final Rect dirtyRect = new Rect();
+    @NonNull
+    private final Rect overlayDirtyRect = new Rect();
+    @NonNull
+    private final TrailTable trailTable = new TrailTable();
+    @NonNull
+    private final TrailTable previewTable = new TrailTable();
+    @NonNull
+    private TrailStyle trailStyle = TrailStyle.DEFAULT;
+    @NonNull
+    private final List<Selection> keptSelections = new ArrayList<>();
+    @NonNull
+    private final List<EffectRecipe> pendingKeptRecipes = new ArrayList<>();
+    @NonNull
+    private final RectF keptRect = new RectF();
+    @NonNull
+    private final Rect keptBounds = new Rect();
 
     @MarkState
     private int state;
     @Nullable
     private Bitmap croppedAreaBitmap;
+    @Nullable
+    private Bitmap croppedSourceBitmap;
+    @Nullable
+    private SelectionKey croppedSelectionKey;
+    @NonNull
+    private final CroppedBitmapCache cropCache = new CroppedBitmapCache(Constants.DEFAULT_CROP_CACHE_BYTES);
+    @NonNull
+    private final EditHistory history = new EditHistory(Constants.MAX_HISTORY_SIZE);
+    @Nullable
+    private EffectRecipe pendingRecipe;
     private float diffStepX;
     private float diffStepY;
+    @Nullable
+    private Bitmap trailBitmap;
+    private boolean trailDirty = true;
+    // downsampled crop the trail is drawn from while dragging, null when the crop itself is small enough
+    @Nullable
+    private Bitmap previewBitmap;
+    private float previewScale = 1f;
+    private boolean previewValid;
+    private boolean dragPreview;
+    @Nullable
+    private Bitmap keptBitmap;
+    private boolean keptDirty = true;
+    private boolean locationOnScreenValid;
 
+    @Nullable
+    private GLTrailView glTrailView;
     @Nullable
     private SelectionStateListener listener;
     private int repCount;
@@ -84,25 +176,111 @@ public class EditableImageView extends AppCompatImageView {
         croppedBitmapPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_OVER));
         copyBitmapPath.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_OVER));
         copyBitmapPath.setAlpha(255);
+        keptSelectionPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_OVER));
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
+        final long start = Metrics.start();
         super.onDraw(canvas);
         canvas.drawCircle(initialPoint.x, initialPoint.y, Constants.INITIAL_CIRCLE_RADIUS, circlePaint);
         canvas.drawPath(selectionPath, linePaint);
         drawOverlays(canvas);
+        Metrics.stop(Metrics.DRAW, start);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        locationOnScreenValid = false;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        trailDirty = true;
+        keptDirty = true;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        releaseTrailLayer();
+        releaseKeptLayer();
+        cropCache.clear();
     }
 
     @Override
     public void setImageBitmap(Bitmap bm) {
         clearDrawings();
+        clearKeptSelections();
+        cropCache.clear();
         super.setImageBitmap(bm);
+        if (bm != null && !pendingKeptRecipes.isEmpty()) {
+            final List<EffectRecipe> recipes = new ArrayList<>(pendingKeptRecipes);
+            pendingKeptRecipes.clear();
+            restoreKeptSelections(recipes);
+        }
+        if (bm != null && pendingRecipe != null) {
+            final EffectRecipe recipe = pendingRecipe;
+            pendingRecipe = null;
+            applyRecipe(recipe);
+        }
+        history.reset(getRecipe());
+        notifyHistoryChanged();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState savedState = new SavedState(super.onSaveInstanceState());
+        final EffectRecipe recipe = pendingRecipe != null ? pendingRecipe : getRecipe();
+        savedState.recipe = recipe == null ? null : RecipeCodec.encode(recipe);
+        if (keptSelections.isEmpty()) {
+            for (int i = 0; i < pendingKeptRecipes.size(); i++) {
+                savedState.keptRecipes.add(RecipeCodec.encode(pendingKeptRecipes.get(i)));
+            }
+        } else {
+            for (int i = 0; i < keptSelections.size(); i++) {
+                final EffectRecipe keptRecipe = keptSelections.get(i).getRecipe();
+                if (keptRecipe != null) {
+                    savedState.keptRecipes.add(RecipeCodec.encode(keptRecipe));
+                }
+            }
+        }
+        return savedState;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        // everything is decoded before anything is applied, so a corrupt recipe restores nothing
+        final List<EffectRecipe> keptRecipes = new ArrayList<>(savedState.keptRecipes.size());
+        final EffectRecipe recipe;
+        try {
+            for (int i = 0; i < savedState.keptRecipes.size(); i++) {
+                keptRecipes.add(RecipeCodec.decode(savedState.keptRecipes.get(i)));
+            }
+            recipe = savedState.recipe != null ? RecipeCodec.decode(savedState.recipe) : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        restoreKeptSelections(keptRecipes);
+        if (recipe != null) {
+            applyRecipe(recipe);
+        }
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        final PointF point = new PointF(event.getX(), event.getY());
+        Metrics.countTouchEvent();
+        final PointF point = touchPoint;
+        point.set(event.getX(), event.getY());
         if (state != MarkState.SELECTION_DRAGGING && !isEventInOfBounds(event)) {
             return super.onTouchEvent(event);
         }
@@ -111,7 +289,7 @@ public class EditableImageView extends AppCompatImageView {
                 onActionDown(point);
                 return true;
             case MotionEvent.ACTION_MOVE:
-                onActionMove(point);
+                onActionMove(event, point);
                 return true;
             case MotionEvent.ACTION_UP:
                 onRelease(point);
@@ -125,24 +303,247 @@ public class EditableImageView extends AppCompatImageView {
         this.listener = listener;
     }
 
+    /**
+     * Hands drawing of the trail being edited over to {@code view}, which has to cover this view
+     * exactly. The trail is drawn with Canvas whenever {@code view} is not rendering.
+     */
+    public void setGLTrailView(@Nullable GLTrailView view) {
+        if (glTrailView != null) {
+            glTrailView.setOnRenderingChangedListener(null);
+            glTrailView.clearTrail();
+        }
+        glTrailView = view;
+        if (view != null) {
+            view.setOnRenderingChangedListener(rendering -> {
+                syncGLTrail();
+                trailDirty = true;
+                invalidate();
+            });
+        }
+        syncGLTrail();
+        trailDirty = true;
+        invalidate();
+    }
+
     public void updateAlpha(int alpha) {
+        if (croppedBitmapPaint.getAlpha() == alpha) {
+            return;
+        }
         croppedBitmapPaint.setAlpha(alpha);
-        invalidate();
+        invalidateTrailLayer();
+    }
+
+    /**
+     * Sets how the copies of the selection being edited are spaced, faded and scaled.
+     */
+    public void setTrailStyle(@NonNull TrailStyle style) {
+        if (trailStyle.equals(style)) {
+            return;
+        }
+        trailStyle = style;
+        invalidateTrailLayer();
     }
 
     public void updateRepCount(int nRepCount) {
+        if (repCount == nRepCount) {
+            return;
+        }
         this.repCount = nRepCount;
         computeOffsetList();
     }
 
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+
+    public void undo() {
+        if (history.canUndo()) {
+            showRecipe(history.undo());
+            notifyHistoryChanged();
+        }
+    }
+
+    public void redo() {
+        if (history.canRedo()) {
+            showRecipe(history.redo());
+            notifyHistoryChanged();
+        }
+    }
+
+    /**
+     * Records the current state as an undo step, for edits made through {@link #updateAlpha(int)} and
+     * {@link #updateRepCount(int)} once the user settled on a value.
+     */
+    public void commitEdit() {
+        if (history.record(getRecipe())) {
+            notifyHistoryChanged();
+        }
+    }
+
+    /**
+     * Lifts the current selection out of editing, so another area can be selected and moved on top of
+     * it with its own drag, count and opacity. Kept selections stay until a new image is set, and
+     * undo history starts over from the next selection.
+     *
+     * @return false when the current selection has not been moved yet
+     */
+    public boolean keepSelection() {
+        if (croppedAreaBitmap == null || (diffStepX == 0 && diffStepY == 0)) {
+            return false;
+        }
+        updateTrailTable();
+        keptSelections.add(new Selection(croppedAreaBitmap, selectionPath, selectionRect, trailTable, getRecipe()));
+        // the kept selection owns the crop now, it must not go back to the cache
+        croppedAreaBitmap = null;
+        croppedSelectionKey = null;
+        clearDrawings();
+        keptDirty = true;
+        invalidate();
+        history.reset(null);
+        notifyHistoryChanged();
+        return true;
+    }
+
+    /**
+     * Sets the byte budget of the cache that keeps recent crops for instant undo and redo.
+     */
+    public void setCropCacheSize(int maxBytes) {
+        cropCache.setMaxSize(maxBytes);
+    }
+
+    /**
+     * @return the edit of the selection being worked on, or null when no area is selected. Kept
+     * selections are not part of it.
+     */
+    @Nullable
+    public EffectRecipe getRecipe() {
+        final Bitmap source = getSourceBitmap();
+        if (croppedAreaBitmap == null || source == null) {
+            return null;
+        }
+        return new EffectRecipe(source.getWidth(), source.getHeight(), selectionPolygon,
+                grabPoint.x, grabPoint.y, lastDragPoint.x, lastDragPoint.y, repCount, croppedBitmapPaint.getAlpha());
+    }
+
+    /**
+     * Replays {@code recipe} on the current image. The selection is only cropped again when it differs
+     * from the current one or the image changed. When there is no image yet the recipe is applied
+     * once one is set.
+     */
+    public void applyRecipe(@NonNull EffectRecipe recipe) {
+        final Bitmap source = getSourceBitmap();
+        if (source == null) {
+            pendingRecipe = recipe;
+            return;
+        }
+        final EffectRecipe scaled = recipe.scaledTo(source.getWidth(), source.getHeight());
+        final EffectRecipe current = getRecipe();
+        if (current == null || croppedSourceBitmap != source || !current.hasSameSelection(scaled)) {
+            restoreSelection(scaled);
+        }
+        if (croppedAreaBitmap == null) {
+            return;
+        }
+        grabPoint.set(scaled.getGrabX(), scaled.getGrabY());
+        lastDragPoint.set(scaled.getDragX(), scaled.getDragY());
+        croppedBitmapPaint.setAlpha(scaled.getAlpha());
+        repCount = scaled.getRepCount();
+        diffStepX = (lastDragPoint.x - grabPoint.x) / repCount;
+        diffStepY = (lastDragPoint.y - grabPoint.y) / repCount;
+        invalidateTrailLayer();
+        invalidate();
+    }
+
     @Nullable
     public Bitmap getDrawnBitmap() {
-        final Bitmap output = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
-        final Canvas canvas = new Canvas(output);
-        if (drawOverlays(canvas)) {
-            return output;
+        final RenderSnapshot snapshot = snapshotRenderState();
+        if (snapshot == null) {
+            return null;
+        }
+        final Bitmap output = snapshot.render();
+        snapshot.release();
+        return output;
+    }
+
+    /**
+     * Captures the current render state so it can be composited off the main thread.
+     *
+     * @return null when there is nothing moved yet
+     */
+    @Nullable
+    public RenderSnapshot snapshotRenderState() {
+        final List<Selection> selections = new ArrayList<>(keptSelections.size() + 1);
+        for (int i = 0; i < keptSelections.size(); i++) {
+            final Selection copy = keptSelections.get(i).copy();
+            if (copy != null) {
+                selections.add(copy);
+            }
+        }
+        if (croppedAreaBitmap != null && (diffStepX != 0 || diffStepY != 0)) {
+            updateTrailTable();
+            selections.add(new Selection(BitmapUtils.copy(croppedAreaBitmap), selectionPath, selectionRect,
+                    trailTable, null));
+        }
+        if (selections.isEmpty()) {
+            return null;
+        }
+        return new RenderSnapshot(getSourceBitmap(), selections, getWidth(), getHeight());
+    }
+
+    private void showRecipe(@Nullable EffectRecipe recipe) {
+        if (recipe == null) {
+            clearDrawings();
+            invalidate();
+        } else {
+            applyRecipe(recipe);
+        }
+    }
+
+    private void notifyHistoryChanged() {
+        if (listener != null) {
+            listener.onHistoryChanged(history.canUndo(), history.canRedo());
         }
-        return null;
+    }
+
+    @Nullable
+    private Bitmap getSourceBitmap() {
+        return getDrawable() instanceof BitmapDrawable ? ((BitmapDrawable) getDrawable()).getBitmap() : null;
+    }
+
+    private void restoreKeptSelections(@NonNull List<EffectRecipe> recipes) {
+        if (getSourceBitmap() == null) {
+            pendingKeptRecipes.clear();
+            pendingKeptRecipes.addAll(recipes);
+            return;
+        }
+        for (int i = 0; i < recipes.size(); i++) {
+            applyRecipe(recipes.get(i));
+            keepSelection();
+        }
+    }
+
+    private void clearKeptSelections() {
+        for (int i = 0; i < keptSelections.size(); i++) {
+            keptSelections.get(i).release();
+        }
+        keptSelections.clear();
+        releaseKeptLayer();
+    }
+
+    private void restoreSelection(@NonNull EffectRecipe recipe) {
+        clearDrawings();
+        if (recipe.getPointCount() < 3) {
+            return;
+        }
+        recipe.fillPolygon(selectionPolygon);
+        setPathFromPolygon();
+        initialPoint.set(recipe.getX(0), recipe.getY(0));
+        lastPoint.set(initialPoint);
+        cropSelection();
     }
 
     private void onActionDown(@NonNull PointF point) {
@@ -167,7 +568,11 @@ public class EditableImageView extends AppCompatImageView {
     }
 
     private void onInitialTouch(@NonNull PointF point) {
+        final boolean hadSelection = croppedAreaBitmap != null;
         clearDrawings();
+        if (hadSelection) {
+            commitEdit();
+        }
         initialPoint.set(point);
         lastPoint.set(point);
         markCount = 0;
@@ -176,14 +581,21 @@ public class EditableImageView extends AppCompatImageView {
     }
 
     private void clearDrawings() {
-        if (croppedAreaBitmap != null) {
-            croppedAreaBitmap.recycle();
+        if (croppedAreaBitmap != null && croppedSelectionKey != null) {
+            cropCache.put(croppedSelectionKey, croppedAreaBitmap);
         }
         croppedAreaBitmap = null;
+        croppedSourceBitmap = null;
+        croppedSelectionKey = null;
+        releasePreviewBitmap();
+        dragPreview = false;
         lastDragPoint.set(0, 0);
         grabPoint.set(0, 0);
         diffStepX = 0;
         diffStepY = 0;
+        trailDirty = true;
+        overlayDirtyRect.setEmpty();
+        syncGLTrail();
         rewind();
         onAreaSelectReleased();
     }
@@ -192,7 +604,30 @@ public class EditableImageView extends AppCompatImageView {
         if (state == MarkState.MARKER_MOVE) {
             lastPoint.set(point);
             state = MarkState.RELEASED;
+        } else if (state == MarkState.SELECTION_DRAGGING) {
+            // one full quality pass replaces the preview the drag was drawn with
+            dragPreview = false;
+            invalidateTrailLayer();
+            commitEdit();
+        }
+    }
+
+    /**
+     * Feeds the samples batched into {@code event} to the stroke before its current position, so fast
+     * strokes keep their shape. Dragging only needs the latest position.
+     */
+    private void onActionMove(@NonNull MotionEvent event, @NonNull PointF point) {
+        final int historySize = event.getHistorySize();
+        for (int i = 0; i < historySize && isMarking(); i++) {
+            point.set(event.getHistoricalX(i), event.getHistoricalY(i));
+            onActionMove(point);
         }
+        point.set(event.getX(), event.getY());
+        onActionMove(point);
+    }
+
+    private boolean isMarking() {
+        return state == MarkState.INITIAL || state == MarkState.MARKER_MOVE || state == MarkState.RELEASED;
     }
 
     private void onActionMove(@NonNull PointF point) {
@@ -201,27 +636,113 @@ public class EditableImageView extends AppCompatImageView {
         }
         if (state == MarkState.SELECTION_GRABBED || state == MarkState.SELECTION_DRAGGING) {
             state = MarkState.SELECTION_DRAGGING;
+            dragPreview = true;
             lastDragPoint.set(point);
             computeOffsetList();
         } else {
+            if (state == MarkState.MARKER_MOVE && isBelowStrokeStep(point)) {
+                return;
+            }
             state = MarkState.MARKER_MOVE;
             markCount++;
             if (!computeIntersect(point)) {
+                invalidateSegment(lastPoint, point);
                 lastPoint.set(point);
                 addToPath(point);
+            } else {
+                invalidate();
             }
-            invalidate();
         }
     }
 
+    private void invalidateSegment(@NonNull PointF from, @NonNull PointF to) {
+        dirtyRectF.set(Math.min(from.x, to.x), Math.min(from.y, to.y),
+                Math.max(from.x, to.x), Math.max(from.y, to.y));
+        dirtyRectF.inset(-LINE_WIDTH, -LINE_WIDTH);
+        dirtyRectF.roundOut(dirtyRect);
+        invalidate(dirtyRect);
+    }
+
+    private boolean isBelowStrokeStep(@NonNull PointF point) {
+        final float dx = point.x - lastPoint.x;
+        final float dy = point.y - lastPoint.y;
+        return dx * dx + dy * dy < Constants.MIN_STROKE_STEP * Constants.MIN_STROKE_STEP;
+    }
+
     private void computeOffsetList() {
-        diffStepX = (lastDragPoint.x - grabPoint.x) / repCount;
-        diffStepY = (lastDragPoint.y - grabPoint.y) / repCount;
-        invalidate();
+        final float nDiffStepX = (lastDragPoint.x - grabPoint.x) / repCount;
+        final float nDiffStepY = (lastDragPoint.y - grabPoint.y) / repCount;
+        if (nDiffStepX != diffStepX || nDiffStepY != diffStepY) {
+            diffStepX = nDiffStepX;
+            diffStepY = nDiffStepY;
+            invalidateTrailLayer();
+        }
+    }
+
+    /**
+     * Marks the trail layer stale and invalidates the union of the area the overlays covered before
+     * and the area they cover now.
+     */
+    private void invalidateTrailLayer() {
+        trailDirty = true;
+        updateTrailTable();
+        if (isDrawingTrailWithGL()) {
+            syncGLTrail();
+            return;
+        }
+        if (croppedAreaBitmap != null && (diffStepX != 0 || diffStepY != 0)) {
+            computeTrailBounds(dirtyRectF);
+            dirtyRectF.union(selectionRect.left, selectionRect.top, selectionRect.right, selectionRect.bottom);
+            dirtyRectF.roundOut(dirtyRect);
+            dirtyRect.inset(-1, -1);
+        } else {
+            dirtyRect.setEmpty();
+        }
+        if (overlayDirtyRect.isEmpty()) {
+            overlayDirtyRect.set(dirtyRect);
+        } else {
+            final int left = overlayDirtyRect.left;
+            final int top = overlayDirtyRect.top;
+            final int right = overlayDirtyRect.right;
+            final int bottom = overlayDirtyRect.bottom;
+            overlayDirtyRect.set(dirtyRect);
+            dirtyRect.union(left, top, right, bottom);
+        }
+        if (!dirtyRect.isEmpty()) {
+            invalidate(dirtyRect);
+        }
+    }
+
+    private boolean isDrawingTrailWithGL() {
+        return glTrailView != null && glTrailView.isRendering();
+    }
+
+    private void syncGLTrail() {
+        if (!isDrawingTrailWithGL()) {
+            return;
+        }
+        if (croppedAreaBitmap != null && (diffStepX != 0 || diffStepY != 0)) {
+            glTrailView.setTrail(croppedAreaBitmap, selectionRect, trailTable);
+        } else {
+            glTrailView.clearTrail();
+        }
+    }
+
+    /**
+     * Evaluates the per-copy offsets, alpha and scale again, only when one of their inputs changed.
+     */
+    private void updateTrailTable() {
+        trailTable.update(repCount, lastDragPoint.x - grabPoint.x, lastDragPoint.y - grabPoint.y,
+                croppedBitmapPaint.getAlpha(), trailStyle);
+    }
+
+    private void computeTrailBounds(@NonNull RectF out) {
+        drawRect.set(selectionRect);
+        TrailPainter.getCopyBounds(drawRect, trailTable, out);
     }
 
     private void valuatePathWithPoint(@NonNull PointF point) {
-        final boolean insidePath = PointUtils.checkPointInsidePath(selectionPath, point);
+        final boolean insidePath = PointUtils.checkPointInsidePath(selectionPolygon, point);
         if (insidePath) {
             state = MarkState.SELECTION_GRABBED;
             grabPoint.set(point);
@@ -233,79 +754,266 @@ public class EditableImageView extends AppCompatImageView {
 
     private void addToPath(@NonNull PointF point) {
         selectionPath.lineTo(point.x, point.y);
+        selectionPolygon.lineTo(point.x, point.y);
     }
 
     private void qAddToPath(@NonNull PointF point, @NonNull PointF endPosition) {
         selectionPath.quadTo(point.x, point.y, endPosition.x, endPosition.y);
+        selectionPolygon.quadTo(point.x, point.y, endPosition.x, endPosition.y);
     }
 
     private void moveToPoint(@NonNull PointF point) {
         selectionPath.moveTo(point.x, point.y);
+        selectionPolygon.moveTo(point.x, point.y);
     }
 
     private void rewind() {
         selectionPath.rewind();
+        selectionPolygon.reset();
+        segmentGrid.reset();
+    }
+
+    private void setPathFromPolygon() {
+        selectionPath.rewind();
+        selectionPath.moveTo(selectionPolygon.getX(0), selectionPolygon.getY(0));
+        for (int i = 1; i < selectionPolygon.size(); i++) {
+            selectionPath.lineTo(selectionPolygon.getX(i), selectionPolygon.getY(i));
+        }
     }
 
     private void closePath() {
         selectionPath.close();
     }
 
+    /**
+     * Closes the lasso when the stroke comes back to its start, or when the segment towards
+     * {@code nPoint} crosses the stroke itself. In the latter case only the loop closed by the crossing
+     * is kept, so the selection never becomes a figure eight. Loops too small to be meant are ignored.
+     */
     private boolean computeIntersect(@NonNull PointF nPoint) {
-        final float lastDistanceToStart = PointUtils.getDistance(initialPoint, lastPoint);
-        final float currentDistanceToStart = PointUtils.getDistance(initialPoint, nPoint);
-        if (currentDistanceToStart < lastDistanceToStart) {
-            // lamely detected the approach to initial point
-            if (currentDistanceToStart <= Constants.SNAP_DISTANCE) {
-                final Path copyPath = new Path(selectionPath);
-                copyPath.quadTo(nPoint.x, nPoint.y, initialPoint.x, initialPoint.y);
-                copyPath.close();
-                if (PointUtils.computePathArea(copyPath) > Constants.MIN_ALLOWED_SNAP_AREA) {
-                    performCrop(nPoint);
-                    return true;
-                }
-            }
-        }
-        if (markCount > Constants.INTERSECT_DEVIATION && PointUtils.lazyMatch(initialPoint, nPoint)) {
+        if (closureDetector.isClosing(selectionPolygon, lastPoint.x, lastPoint.y, nPoint.x, nPoint.y, markCount)) {
             performCrop(nPoint);
             return true;
         }
+        segmentGrid.update(selectionPolygon);
+        final int crossedSegment = segmentGrid.findCrossing(selectionPolygon, nPoint.x, nPoint.y, crossingPoint);
+        if (crossedSegment >= 0 && selectionPolygon.getLoopArea(crossedSegment + 1, crossingPoint[0],
+                crossingPoint[1]) > Constants.MIN_ALLOWED_SNAP_AREA) {
+            performCropAtCrossing(crossedSegment);
+            return true;
+        }
         return false;
     }
 
+    private void performCropAtCrossing(int crossedSegment) {
+        selectionPolygon.retainLoop(crossedSegment + 1, crossingPoint[0], crossingPoint[1]);
+        setPathFromPolygon();
+        initialPoint.set(crossingPoint[0], crossingPoint[1]);
+        cropSelection();
+        commitEdit();
+    }
+
     private void performCrop(@NonNull PointF nPoint) {
         qAddToPath(nPoint, initialPoint);
+        cropSelection();
+        commitEdit();
+    }
+
+    private void cropSelection() {
         closePath();
         onAreaSelected();
-        this.selectionRect.set(PointUtils.getRectOfPath(selectionPath));
-        croppedAreaBitmap =
-                BitmapUtils.getCroppedBitmap(
-                        ((BitmapDrawable) getDrawable()).getBitmap(),
-                        selectionPath);
+        this.selectionRect.set(BitmapUtils.getCropRect(selectionPath, Constants.FEATHER_RADIUS));
+        final Bitmap source = getSourceBitmap();
+        if (source == null) {
+            return;
+        }
+        croppedSelectionKey = new SelectionKey(new EffectRecipe(source.getWidth(), source.getHeight(),
+                selectionPolygon, 0, 0, 0, 0, 0, 0));
+        croppedAreaBitmap = cropCache.take(croppedSelectionKey);
+        if (croppedAreaBitmap == null) {
+            croppedAreaBitmap = BitmapUtils.getCroppedBitmap(source, selectionPath, Constants.FEATHER_RADIUS);
+        }
+        croppedSourceBitmap = source;
     }
 
     private boolean drawOverlays(Canvas canvas) {
+        final boolean drewKept = drawKeptSelections(canvas);
         if (croppedAreaBitmap != null && (diffStepX != 0 || diffStepY != 0)) {
-            drawRect.set(selectionRect);
-            for (int i = 0; i < repCount; i++) {
-                drawRect.offset(diffStepX, diffStepY);
-                if (!canvas.quickReject(drawRect, Canvas.EdgeType.AA)) {
-                    canvas.drawBitmap(croppedAreaBitmap, null, drawRect, croppedBitmapPaint);
-                }
+            if (isDrawingTrailWithGL()) {
+                return true;
+            }
+            if (trailDirty) {
+                buildTrailLayer(croppedAreaBitmap);
+            }
+            if (trailBitmap != null && !trailBounds.isEmpty()
+                    && !canvas.quickReject(trailRect, Canvas.EdgeType.AA)) {
+                canvas.drawBitmap(trailBitmap, null, trailBounds, null);
             }
             canvas.drawBitmap(croppedAreaBitmap, null, selectionRect, copyBitmapPath);
             return true;
         }
-        return false;
+        return drewKept;
+    }
+
+    private boolean drawKeptSelections(Canvas canvas) {
+        if (keptSelections.isEmpty()) {
+            return false;
+        }
+        if (keptDirty) {
+            buildKeptLayer();
+        }
+        if (keptBitmap != null && !keptBounds.isEmpty()
+                && !canvas.quickReject(keptRect, Canvas.EdgeType.AA)) {
+            canvas.drawBitmap(keptBitmap, keptBounds.left, keptBounds.top, null);
+        }
+        return true;
+    }
+
+    /**
+     * Composites the kept selections into a single layer in z-order, bottom-most first, so they cost
+     * one blit per frame however many there are. Each selection is culled against the layer on its
+     * own, and the layer only covers their union clipped to the view.
+     */
+    private void buildKeptLayer() {
+        keptDirty = false;
+        keptRect.setEmpty();
+        for (int i = 0; i < keptSelections.size(); i++) {
+            keptSelections.get(i).getBounds(drawRect);
+            keptRect.union(drawRect);
+        }
+        keptRect.roundOut(keptBounds);
+        if (keptBounds.isEmpty() || !keptBounds.intersect(0, 0, getWidth(), getHeight())) {
+            keptBounds.setEmpty();
+            return;
+        }
+        keptRect.set(keptBounds);
+        keptBitmap = obtainLayerBitmap(keptBitmap, keptBounds.width(), keptBounds.height());
+        trailCanvas.setBitmap(keptBitmap);
+        trailCanvas.save();
+        trailCanvas.translate(-keptBounds.left, -keptBounds.top);
+        for (int i = 0; i < keptSelections.size(); i++) {
+            keptSelections.get(i).draw(trailCanvas, keptSelectionPaint, drawRect);
+        }
+        trailCanvas.restore();
+        trailCanvas.setBitmap(null);
+    }
+
+    private void releaseKeptLayer() {
+        BitmapPool.get().release(keptBitmap);
+        keptBitmap = null;
+        keptDirty = true;
+    }
+
+    /**
+     * Composites every trail copy into a single layer so that steady state frames cost one blit.
+     * The layer only covers the union of the copies clipped to the view, and its backing bitmap is
+     * reconfigured in place whenever the previous allocation is large enough. While dragging, the
+     * layer is built at the scale of the preview from at most {@link Constants#PREVIEW_MAX_COPIES}
+     * copies without filtering and stretched over the same area, so a frame costs about the same
+     * whatever the size of the selection and the count.
+     */
+    private void buildTrailLayer(@NonNull Bitmap source) {
+        trailDirty = false;
+        computeTrailBounds(trailRect);
+        trailRect.roundOut(trailBounds);
+        if (!trailBounds.intersect(0, 0, getWidth(), getHeight())) {
+            trailBounds.setEmpty();
+            return;
+        }
+        trailRect.set(trailBounds);
+        final boolean preview = dragPreview;
+        if (preview) {
+            updatePreviewBitmap(source);
+            previewTable.update(Math.min(repCount, Constants.PREVIEW_MAX_COPIES), lastDragPoint.x - grabPoint.x,
+                    lastDragPoint.y - grabPoint.y, croppedBitmapPaint.getAlpha(), trailStyle);
+        }
+        final float scale = preview ? previewScale : 1f;
+        trailBitmap = obtainLayerBitmap(trailBitmap, Math.max(1, Math.round(trailBounds.width() * scale)),
+                Math.max(1, Math.round(trailBounds.height() * scale)));
+        trailCanvas.setBitmap(trailBitmap);
+        trailCanvas.save();
+        trailCanvas.scale(scale, scale);
+        drawRect.set(selectionRect);
+        drawRect.offset(-trailBounds.left, -trailBounds.top);
+        if (preview) {
+            TrailPainter.drawCopies(trailCanvas, previewBitmap != null ? previewBitmap : source, drawRect,
+                    previewTable, 1f, 1f, copyRect, previewPaint);
+        } else {
+            TrailPainter.drawCopies(trailCanvas, source, drawRect, trailTable, 1f, 1f, copyRect, croppedBitmapPaint);
+        }
+        trailCanvas.restore();
+        trailCanvas.setBitmap(null);
+    }
+
+    /**
+     * Downsamples the crop by the power of two that brings it under {@link Constants#PREVIEW_MAX_PIXELS},
+     * once per selection.
+     */
+    private void updatePreviewBitmap(@NonNull Bitmap source) {
+        if (previewValid) {
+            return;
+        }
+        previewValid = true;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int level = 0;
+        while (width * height > Constants.PREVIEW_MAX_PIXELS && width > 1 && height > 1) {
+            width = Math.max(1, width / 2);
+            height = Math.max(1, height / 2);
+            level++;
+        }
+        previewScale = 1f / (1 << level);
+        BitmapPool.get().release(previewBitmap);
+        previewBitmap = null;
+        if (level > 0) {
+            previewBitmap = BitmapPool.get().acquire(width, height, Bitmap.Config.ARGB_8888);
+            trailCanvas.setBitmap(previewBitmap);
+            drawRect.set(0, 0, width, height);
+            trailCanvas.drawBitmap(source, null, drawRect, downsamplePaint);
+            trailCanvas.setBitmap(null);
+        }
+    }
+
+    private void releasePreviewBitmap() {
+        BitmapPool.get().release(previewBitmap);
+        previewBitmap = null;
+        previewScale = 1f;
+        previewValid = false;
+    }
+
+    /**
+     * @return {@code bitmap} cleared and reconfigured in place when its allocation is large enough,
+     * otherwise one from the {@link BitmapPool}, in which case {@code bitmap} goes back to the pool
+     */
+    @NonNull
+    private static Bitmap obtainLayerBitmap(@Nullable Bitmap bitmap, int width, int height) {
+        if (bitmap != null && bitmap.getAllocationByteCount() >= width * height * 4) {
+            if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+                bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+            }
+            bitmap.eraseColor(Color.TRANSPARENT);
+            return bitmap;
+        }
+        BitmapPool.get().release(bitmap);
+        return BitmapPool.get().acquire(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private void releaseTrailLayer() {
+        BitmapPool.get().release(trailBitmap);
+        trailBitmap = null;
+        trailDirty = true;
+        releasePreviewBitmap();
     }
 
     private boolean isEventInOfBounds(MotionEvent motionEvent) {
-        int[] iArr = new int[2];
-        getLocationOnScreen(iArr);
-        int i = iArr[0];
-        int i2 = iArr[1];
-        return !(motionEvent.getRawX() < ((float) i) || motionEvent.getRawX() > ((float) (i + getWidth()))
-                || motionEvent.getRawY() < ((float) i2) || motionEvent.getRawY() > ((float) (i2 + getHeight())));
+        if (!locationOnScreenValid) {
+            getLocationOnScreen(locationOnScreen);
+            locationOnScreenValid = true;
+        }
+        final int left = locationOnScreen[0];
+        final int top = locationOnScreen[1];
+        return !(motionEvent.getRawX() < ((float) left) || motionEvent.getRawX() > ((float) (left + getWidth()))
+                || motionEvent.getRawY() < ((float) top) || motionEvent.getRawY() > ((float) (top + getHeight())));
     }
 
     private void onAreaSelected() {
@@ -321,4 +1029,47 @@ public class EditableImageView extends AppCompatImageView {
             listener.onAreaSelectionReleased();
         }
     }
+
+    static class SavedState extends BaseSavedState {
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+
+        @Nullable
+        byte[] recipe;
+        @NonNull
+        final List<byte[]> keptRecipes = new ArrayList<>();
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            recipe = in.createByteArray();
+            final int keptCount = in.readInt();
+            for (int i = 0; i < keptCount; i++) {
+                keptRecipes.add(in.createByteArray());
+            }
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeByteArray(recipe);
+            out.writeInt(keptRecipes.size());
+            for (int i = 0; i < keptRecipes.size(); i++) {
+                out.writeByteArray(keptRecipes.get(i));
+            }
+        }
+    }
 }
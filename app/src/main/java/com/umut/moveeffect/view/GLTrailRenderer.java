@@ -0,0 +1,229 @@
+package com.umut.moveeffect.view;
+
+import android.graphics.Bitmap;
+import android.graphics.SurfaceTexture;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+import android.opengl.GLUtils;
+import android.support.annotation.NonNull;
+
+import com.umut.moveeffect.render.QuadBatch;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * OpenGL ES 2.0 side of {@link GLTrailView}. Owns the EGL context of one surface and draws a
+ * {@link QuadBatch} with one texture in a single {@code glDrawArrays} call. Must only be used from
+ * the thread that called {@link #init(SurfaceTexture)}.
+ */
+final class GLTrailRenderer {
+
+    private static final String VERTEX_SHADER =
+            "uniform vec2 uViewport;\n"
+                    + "attribute vec2 aPosition;\n"
+                    + "attribute vec2 aTexCoord;\n"
+                    + "attribute float aAlpha;\n"
+                    + "varying vec2 vTexCoord;\n"
+                    + "varying float vAlpha;\n"
+                    + "void main() {\n"
+                    + "    vec2 clip = aPosition / uViewport * 2.0 - 1.0;\n"
+                    + "    gl_Position = vec4(clip.x, -clip.y, 0.0, 1.0);\n"
+                    + "    vTexCoord = aTexCoord;\n"
+                    + "    vAlpha = aAlpha;\n"
+                    + "}\n";
+
+    // textures are uploaded premultiplied, so alpha scales every channel
+    private static final String FRAGMENT_SHADER =
+            "precision mediump float;\n"
+                    + "uniform sampler2D uTexture;\n"
+                    + "varying vec2 vTexCoord;\n"
+                    + "varying float vAlpha;\n"
+                    + "void main() {\n"
+                    + "    gl_FragColor = texture2D(uTexture, vTexCoord) * vAlpha;\n"
+                    + "}\n";
+
+    private static final int BYTES_PER_FLOAT = 4;
+    private static final int STRIDE = QuadBatch.FLOATS_PER_VERTEX * BYTES_PER_FLOAT;
+
+    private EGLDisplay display = EGL14.EGL_NO_DISPLAY;
+    private EGLContext context = EGL14.EGL_NO_CONTEXT;
+    private EGLSurface surface = EGL14.EGL_NO_SURFACE;
+    private int program;
+    private int texture;
+    private int viewportLocation;
+    private int positionLocation;
+    private int texCoordLocation;
+    private int alphaLocation;
+    private FloatBuffer vertexBuffer = allocate(QuadBatch.FLOATS_PER_QUAD * 32);
+
+    /**
+     * @return false when the device can not give an OpenGL ES 2.0 context for {@code surfaceTexture}
+     */
+    boolean init(@NonNull SurfaceTexture surfaceTexture) {
+        display = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        final int[] version = new int[2];
+        if (display == EGL14.EGL_NO_DISPLAY || !EGL14.eglInitialize(display, version, 0, version, 1)) {
+            return false;
+        }
+        final int[] configAttributes = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_ALPHA_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                EGL14.EGL_NONE
+        };
+        final EGLConfig[] configs = new EGLConfig[1];
+        final int[] configCount = new int[1];
+        if (!EGL14.eglChooseConfig(display, configAttributes, 0, configs, 0, 1, configCount, 0)
+                || configCount[0] == 0) {
+            return false;
+        }
+        context = EGL14.eglCreateContext(display, configs[0], EGL14.EGL_NO_CONTEXT,
+                new int[]{EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE}, 0);
+        if (context == EGL14.EGL_NO_CONTEXT) {
+            return false;
+        }
+        surface = EGL14.eglCreateWindowSurface(display, configs[0], surfaceTexture,
+                new int[]{EGL14.EGL_NONE}, 0);
+        if (surface == EGL14.EGL_NO_SURFACE || !EGL14.eglMakeCurrent(display, surface, surface, context)) {
+            return false;
+        }
+        program = createProgram();
+        if (program == 0) {
+            return false;
+        }
+        viewportLocation = GLES20.glGetUniformLocation(program, "uViewport");
+        positionLocation = GLES20.glGetAttribLocation(program, "aPosition");
+        texCoordLocation = GLES20.glGetAttribLocation(program, "aTexCoord");
+        alphaLocation = GLES20.glGetAttribLocation(program, "aAlpha");
+
+        final int[] textures = new int[1];
+        GLES20.glGenTextures(1, textures, 0);
+        texture = textures[0];
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+        // unfiltered like the Canvas paint the trail falls back to
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glEnable(GLES20.GL_BLEND);
+        GLES20.glBlendFunc(GLES20.GL_ONE, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        return true;
+    }
+
+    /**
+     * Replaces the texture every quad samples from.
+     */
+    void upload(@NonNull Bitmap bitmap) {
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, bitmap, 0);
+    }
+
+    /**
+     * Clears the surface and draws {@code batch} in one call, or leaves the surface cleared when the
+     * batch is empty.
+     */
+    void draw(@NonNull QuadBatch batch, int width, int height) {
+        GLES20.glViewport(0, 0, width, height);
+        GLES20.glClearColor(0f, 0f, 0f, 0f);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        if (batch.getQuadCount() > 0) {
+            final int floatCount = batch.getQuadCount() * QuadBatch.FLOATS_PER_QUAD;
+            if (vertexBuffer.capacity() < floatCount) {
+                vertexBuffer = allocate(floatCount);
+            }
+            vertexBuffer.clear();
+            vertexBuffer.put(batch.getVertices(), 0, floatCount);
+
+            GLES20.glUseProgram(program);
+            GLES20.glUniform2f(viewportLocation, width, height);
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+            bindAttribute(positionLocation, 2, 0);
+            bindAttribute(texCoordLocation, 2, 2);
+            bindAttribute(alphaLocation, 1, 4);
+            GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, batch.getVertexCount());
+        }
+        EGL14.eglSwapBuffers(display, surface);
+    }
+
+    void release() {
+        if (display == EGL14.EGL_NO_DISPLAY) {
+            return;
+        }
+        if (context != EGL14.EGL_NO_CONTEXT && surface != EGL14.EGL_NO_SURFACE) {
+            if (texture != 0) {
+                GLES20.glDeleteTextures(1, new int[]{texture}, 0);
+            }
+            if (program != 0) {
+                GLES20.glDeleteProgram(program);
+            }
+        }
+        EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+        if (surface != EGL14.EGL_NO_SURFACE) {
+            EGL14.eglDestroySurface(display, surface);
+        }
+        if (context != EGL14.EGL_NO_CONTEXT) {
+            EGL14.eglDestroyContext(display, context);
+        }
+        EGL14.eglTerminate(display);
+        display = EGL14.EGL_NO_DISPLAY;
+        context = EGL14.EGL_NO_CONTEXT;
+        surface = EGL14.EGL_NO_SURFACE;
+        program = 0;
+        texture = 0;
+    }
+
+    private void bindAttribute(int location, int size, int offset) {
+        vertexBuffer.position(offset);
+        GLES20.glVertexAttribPointer(location, size, GLES20.GL_FLOAT, false, STRIDE, vertexBuffer);
+        GLES20.glEnableVertexAttribArray(location);
+    }
+
+    private static int createProgram() {
+        final int vertexShader = compileShader(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER);
+        final int fragmentShader = compileShader(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+        if (vertexShader == 0 || fragmentShader == 0) {
+            return 0;
+        }
+        final int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+        final int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] == 0) {
+            GLES20.glDeleteProgram(program);
+            return 0;
+        }
+        return program;
+    }
+
+    private static int compileShader(int type, @NonNull String source) {
+        final int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        final int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            GLES20.glDeleteShader(shader);
+            return 0;
+        }
+        return shader;
+    }
+
+    @NonNull
+    private static FloatBuffer allocate(int floatCount) {
+        return ByteBuffer.allocateDirect(floatCount * BYTES_PER_FLOAT)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+}
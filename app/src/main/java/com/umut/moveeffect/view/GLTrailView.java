@@ -0,0 +1,262 @@
+package com.umut.moveeffect.view;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.pm.ConfigurationInfo;
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.TextureView;
+
+import com.umut.moveeffect.render.QuadBatch;
+import com.umut.moveeffect.render.TrailTable;
+import com.umut.moveeffect.util.BitmapPool;
+import com.umut.moveeffect.util.BitmapUtils;
+
+/**
+ * Draws the trail of the selection being edited with OpenGL ES, laid over an
+ * {@link EditableImageView} of the same size and position. The selection is uploaded as a texture
+ * once and every copy is drawn from it in a single batched call on a dedicated thread. Until the
+ * surface is ready, or when GL can not be set up, {@link #isRendering()} is false and the image
+ * view keeps drawing the trail with Canvas.
+ */
+public class GLTrailView extends TextureView implements TextureView.SurfaceTextureListener {
+
+    private static final int GLES_VERSION_2 = 0x20000;
+
+    public interface OnRenderingChangedListener {
+        void onRenderingChanged(boolean rendering);
+    }
+
+    // guards the pending fields, which are written on the main thread and read on the GL thread
+    @NonNull
+    private final Object lock = new Object();
+    @NonNull
+    private final Runnable drawRunnable = this::drawPending;
+    // GL thread only
+    @NonNull
+    private final QuadBatch batch = new QuadBatch();
+    @Nullable
+    private GLTrailRenderer renderer;
+
+    @Nullable
+    private HandlerThread glThread;
+    @Nullable
+    private Handler glHandler;
+    @Nullable
+    private OnRenderingChangedListener listener;
+    private boolean rendering;
+    // main thread only, bumped for every surface so results of a destroyed one's setup are dropped
+    private int surfaceGeneration;
+    @Nullable
+    private Bitmap uploadedSource;
+    private int uploadedGenerationId;
+
+    @NonNull
+    private final TrailTable pendingTrail = new TrailTable();
+    @Nullable
+    private Bitmap pendingUpload;
+    private boolean pendingHasTrail;
+    private float pendingLeft;
+    private float pendingTop;
+    private float pendingWidth;
+    private float pendingHeight;
+    private int surfaceWidth;
+    private int surfaceHeight;
+    private boolean drawPosted;
+
+    public GLTrailView(Context context) {
+        this(context, null);
+    }
+
+    public GLTrailView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public GLTrailView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    /**
+     * @return true when the device reports OpenGL ES 2.0 support
+     */
+    public static boolean isSupported(@NonNull Context context) {
+        final ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return false;
+        }
+        final ConfigurationInfo info = activityManager.getDeviceConfigurationInfo();
+        return info != null && info.reqGlEsVersion >= GLES_VERSION_2;
+    }
+
+    public void setOnRenderingChangedListener(@Nullable OnRenderingChangedListener listener) {
+        this.listener = listener;
+    }
+
+    public boolean isRendering() {
+        return rendering;
+    }
+
+    /**
+     * Shows the copies of {@code trail} of {@code source} placed relative to {@code selectionRect},
+     * with the source itself on top. The source is only uploaded again when it is a different bitmap
+     * or its pixels changed since the last call.
+     */
+    public void setTrail(@NonNull Bitmap source, @NonNull Rect selectionRect, @NonNull TrailTable trail) {
+        if (!rendering) {
+            return;
+        }
+        Bitmap upload = null;
+        if (source != uploadedSource || source.getGenerationId() != uploadedGenerationId) {
+            // the GL thread gets its own copy, the view may recycle or reuse the source meanwhile
+            upload = BitmapUtils.copy(source);
+            uploadedSource = source;
+            uploadedGenerationId = source.getGenerationId();
+        }
+        synchronized (lock) {
+            if (upload != null) {
+                BitmapPool.get().release(pendingUpload);
+                pendingUpload = upload;
+            }
+            pendingHasTrail = true;
+            pendingLeft = selectionRect.left;
+            pendingTop = selectionRect.top;
+            pendingWidth = selectionRect.width();
+            pendingHeight = selectionRect.height();
+            pendingTrail.set(trail);
+            postDrawLocked();
+        }
+    }
+
+    public void clearTrail() {
+        if (!rendering) {
+            return;
+        }
+        synchronized (lock) {
+            pendingHasTrail = false;
+            postDrawLocked();
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+        synchronized (lock) {
+            surfaceWidth = width;
+            surfaceHeight = height;
+        }
+        final int generation = ++surfaceGeneration;
+        glThread = new HandlerThread("GLTrailView");
+        glThread.start();
+        glHandler = new Handler(glThread.getLooper());
+        glHandler.post(() -> {
+            final GLTrailRenderer glRenderer = new GLTrailRenderer();
+            final boolean initialized = glRenderer.init(surfaceTexture);
+            if (initialized) {
+                renderer = glRenderer;
+            } else {
+                glRenderer.release();
+            }
+            post(() -> {
+                if (generation == surfaceGeneration) {
+                    setRendering(initialized);
+                }
+            });
+        });
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+        synchronized (lock) {
+            surfaceWidth = width;
+            surfaceHeight = height;
+            postDrawLocked();
+        }
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+        surfaceGeneration++;
+        setRendering(false);
+        if (glHandler != null && glThread != null) {
+            glHandler.removeCallbacks(drawRunnable);
+            // the surface texture is released after the EGL surface drawing into it is gone
+            glHandler.post(() -> {
+                if (renderer != null) {
+                    renderer.release();
+                    renderer = null;
+                }
+                surfaceTexture.release();
+            });
+            glThread.quitSafely();
+        }
+        glThread = null;
+        glHandler = null;
+        synchronized (lock) {
+            drawPosted = false;
+            BitmapPool.get().release(pendingUpload);
+            pendingUpload = null;
+        }
+        return false;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+
+    }
+
+    private void setRendering(boolean rendering) {
+        if (this.rendering == rendering) {
+            return;
+        }
+        this.rendering = rendering;
+        // a new surface comes with a new context, so the source has to be uploaded again
+        uploadedSource = null;
+        if (listener != null) {
+            listener.onRenderingChanged(rendering);
+        }
+    }
+
+    private void postDrawLocked() {
+        if (!drawPosted && glHandler != null) {
+            drawPosted = true;
+            glHandler.post(drawRunnable);
+        }
+    }
+
+    /**
+     * Runs on the GL thread. Updates coalesce, so only the latest trail is drawn.
+     */
+    private void drawPending() {
+        final Bitmap upload;
+        final int width;
+        final int height;
+        synchronized (lock) {
+            drawPosted = false;
+            upload = pendingUpload;
+            pendingUpload = null;
+            batch.clear();
+            if (pendingHasTrail) {
+                batch.addTrail(pendingLeft, pendingTop, pendingWidth, pendingHeight, pendingTrail,
+                        surfaceWidth, surfaceHeight);
+            }
+            width = surfaceWidth;
+            height = surfaceHeight;
+        }
+        if (renderer == null) {
+            BitmapPool.get().release(upload);
+            return;
+        }
+        if (upload != null) {
+            renderer.upload(upload);
+            BitmapPool.get().release(upload);
+        }
+        renderer.draw(batch, width, height);
+    }
+}
@@ -0,0 +1,147 @@
+package com.umut.moveeffect.view;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.umut.moveeffect.encode.GifEncoder;
+import com.umut.moveeffect.encode.TrailAnimationWriter;
+import com.umut.moveeffect.raster.ArgbBuffer;
+import com.umut.moveeffect.raster.StripCompositor;
+import com.umut.moveeffect.raster.TrailLayer;
+import com.umut.moveeffect.util.BitmapPool;
+import com.umut.moveeffect.util.BitmapUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything {@link EditableImageView} needs to draw its output, so the composition can run on a
+ * worker thread while the user keeps editing. The selections are copies owned by the snapshot; the
+ * background is the view's source bitmap, shared by reference. Source bitmaps are replaced, never
+ * drawn into or recycled, so sharing it is safe, and a recycled one is skipped rather than drawn.
+ */
+public final class RenderSnapshot {
+
+    private static final int COMPOSITE_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final StripCompositor COMPOSITOR = new StripCompositor(createCompositeExecutor(),
+            COMPOSITE_THREADS);
+
+    @Nullable
+    private final Bitmap background;
+    @NonNull
+    private final List<Selection> selections;
+    private final int width;
+    private final int height;
+    private boolean released;
+
+    /**
+     * @param selections copies owned by the snapshot, bottom-most first
+     */
+    RenderSnapshot(@Nullable Bitmap background, @NonNull List<Selection> selections, int width, int height) {
+        this.background = background;
+        this.selections = new ArrayList<>(selections);
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Composites the trails in parallel strips, matching what {@link Selection#draw} draws through a
+     * Canvas with the view's anti-aliased paint. Pixels stay in their stored premultiplied layout from
+     * reading the background to writing the output back.
+     *
+     * @return the composited output in a bitmap from the {@link BitmapPool}
+     */
+    @NonNull
+    public Bitmap render() {
+        final Bitmap output = BitmapPool.get().acquire(width, height, Bitmap.Config.ARGB_8888);
+        if (background != null && !background.isRecycled()) {
+            new Canvas(output).drawBitmap(background, null, new Rect(0, 0, width, height), null);
+        }
+        final ArgbBuffer buffer = BitmapUtils.readStoredPixels(output);
+        final List<TrailLayer> layers = new ArrayList<>(selections.size());
+        for (int i = 0; i < selections.size(); i++) {
+            layers.add(selections.get(i).toStoredTrailLayer());
+        }
+        COMPOSITOR.composite(buffer, layers);
+        BitmapUtils.writeStoredPixels(output, buffer);
+        return output;
+    }
+
+    /**
+     * Writes the trails building up copy by copy as an animated GIF to {@code out}, frame by frame.
+     * Besides the encoder tables, memory is two canvas sized buffers and the crops, whatever the
+     * number of frames.
+     *
+     * @param delayMillis     time each copy takes to appear
+     * @param lastDelayMillis time the finished output stays before the animation starts over
+     */
+    public void writeAnimation(@NonNull OutputStream out, int delayMillis, int lastDelayMillis) throws IOException {
+        final Bitmap canvasBitmap = BitmapPool.get().acquire(width, height, Bitmap.Config.ARGB_8888);
+        if (background != null && !background.isRecycled()) {
+            new Canvas(canvasBitmap).drawBitmap(background, null, new Rect(0, 0, width, height), null);
+        }
+        final TrailAnimationWriter writer = new TrailAnimationWriter(BitmapUtils.toArgbBuffer(canvasBitmap));
+        BitmapPool.get().release(canvasBitmap);
+        for (int i = 0; i < selections.size(); i++) {
+            writer.addLayer(selections.get(i).toTrailLayer());
+        }
+        final GifEncoder encoder = new GifEncoder(out, width, height, 0);
+        writer.write(encoder, delayMillis, lastDelayMillis);
+        encoder.finish();
+    }
+
+    public int getSelectionCount() {
+        return selections.size();
+    }
+
+    /**
+     * @return the selection at {@code index} in z-order, bottom-most first
+     */
+    @NonNull
+    public Selection getSelection(int index) {
+        return selections.get(index);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the crops to the pool. Calls after the first one do nothing.
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        for (int i = 0; i < selections.size(); i++) {
+            selections.get(i).release();
+        }
+    }
+
+    /**
+     * Helpers for the thread calling {@link #render()}, which draws a strip share itself. Idle
+     * helpers time out so the pool costs nothing between saves.
+     */
+    @NonNull
+    private static ExecutorService createCompositeExecutor() {
+        final int helpers = Math.max(COMPOSITE_THREADS - 1, 1);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(helpers, helpers, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
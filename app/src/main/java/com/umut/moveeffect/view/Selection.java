@@ -0,0 +1,128 @@
+package com.umut.moveeffect.view;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.umut.moveeffect.raster.TrailLayer;
+import com.umut.moveeffect.recipe.EffectRecipe;
+import com.umut.moveeffect.render.TrailTable;
+import com.umut.moveeffect.util.BitmapPool;
+import com.umut.moveeffect.util.BitmapUtils;
+
+/**
+ * A lifted area together with its own trail parameters. The crop only covers the bounding rect of
+ * the selection, so a selection costs memory in proportion to its area.
+ */
+public final class Selection {
+
+    @NonNull
+    private final Bitmap croppedBitmap;
+    @NonNull
+    private final Path selectionPath;
+    @NonNull
+    private final Rect selectionRect;
+    @NonNull
+    private final RectF selectionBounds;
+    @NonNull
+    private final TrailTable trail;
+    @Nullable
+    private final EffectRecipe recipe;
+
+    Selection(@NonNull Bitmap croppedBitmap, @NonNull Path selectionPath, @NonNull Rect selectionRect,
+              @NonNull TrailTable trail, @Nullable EffectRecipe recipe) {
+        this.croppedBitmap = croppedBitmap;
+        this.selectionPath = new Path(selectionPath);
+        this.selectionRect = new Rect(selectionRect);
+        this.selectionBounds = new RectF(selectionRect);
+        this.trail = trail.copy();
+        this.recipe = recipe;
+    }
+
+    /**
+     * Draws the trail and then the selection itself on top. Nothing is drawn when the whole trail
+     * falls outside the canvas clip.
+     *
+     * @param scratch overwritten
+     */
+    void draw(@NonNull Canvas canvas, @NonNull Paint paint, @NonNull RectF scratch) {
+        getBounds(scratch);
+        if (canvas.quickReject(scratch, Canvas.EdgeType.AA)) {
+            return;
+        }
+        paint.setAlpha(255);
+        TrailPainter.drawCopies(canvas, croppedBitmap, selectionBounds, trail, 1f, 1f, scratch, paint);
+        canvas.drawBitmap(croppedBitmap, null, selectionRect, paint);
+    }
+
+    /**
+     * Sets {@code out} to the area covered by the selection and all of its copies.
+     */
+    void getBounds(@NonNull RectF out) {
+        TrailPainter.getCopyBounds(selectionBounds, trail, out);
+        out.union(selectionBounds);
+    }
+
+    /**
+     * @return a copy owning its own crop, or null when the crop is already released
+     */
+    @Nullable
+    Selection copy() {
+        if (croppedBitmap.isRecycled()) {
+            return null;
+        }
+        return new Selection(BitmapUtils.copy(croppedBitmap), selectionPath, selectionRect, trail, recipe);
+    }
+
+    /**
+     * @return the selection and its trail for the software compositors, in view coordinates
+     */
+    @NonNull
+    TrailLayer toTrailLayer() {
+        return new TrailLayer(BitmapUtils.toArgbBuffer(croppedBitmap), selectionRect.left,
+                selectionRect.top, trail);
+    }
+
+    /**
+     * Like {@link #toTrailLayer()} with the crop in the stored layout of
+     * {@link BitmapUtils#readStoredPixels(Bitmap)}, for compositing onto a buffer read the same way.
+     */
+    @NonNull
+    TrailLayer toStoredTrailLayer() {
+        return new TrailLayer(BitmapUtils.readStoredPixels(croppedBitmap), selectionRect.left,
+                selectionRect.top, trail);
+    }
+
+    /**
+     * @return copy of the closed selection outline in view coordinates
+     */
+    @NonNull
+    public Path getSelectionPath() {
+        return new Path(selectionPath);
+    }
+
+    /**
+     * @return the copies of the selection in view coordinates, not to be updated
+     */
+    @NonNull
+    public TrailTable getTrail() {
+        return trail;
+    }
+
+    @Nullable
+    EffectRecipe getRecipe() {
+        return recipe;
+    }
+
+    /**
+     * Hands the crop back to the {@link BitmapPool}.
+     */
+    public void release() {
+        BitmapPool.get().release(croppedBitmap);
+    }
+}
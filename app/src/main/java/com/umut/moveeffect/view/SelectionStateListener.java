@@ -3,4 +3,5 @@ package com.umut.moveeffect.view;
 public interface SelectionStateListener {
     void onAreaSelect();
     void onAreaSelectionReleased();
+    void onHistoryChanged(boolean canUndo, boolean canRedo);
 }
@@ -0,0 +1,60 @@
+package com.umut.moveeffect.view;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+
+import com.umut.moveeffect.render.TrailTable;
+
+public final class TrailPainter {
+
+    private TrailPainter() {
+
+    }
+
+    /**
+     * Draws every copy of {@code trail} of {@code source}, placed relative to {@code selectionRect}.
+     * Offsets are multiplied by {@code scaleX} and {@code scaleY} so a trail recorded in view
+     * coordinates can be replayed at another resolution. The paint's alpha is restored afterwards.
+     *
+     * @param scratch overwritten
+     */
+    public static void drawCopies(@NonNull Canvas canvas, @NonNull Bitmap source, @NonNull RectF selectionRect,
+                                  @NonNull TrailTable trail, float scaleX, float scaleY,
+                                  @NonNull RectF scratch, @NonNull Paint paint) {
+        final int alpha = paint.getAlpha();
+        for (int i = 0; i < trail.getCount(); i++) {
+            getCopyRect(selectionRect, trail, i, scaleX, scaleY, scratch);
+            if (!canvas.quickReject(scratch, Canvas.EdgeType.AA)) {
+                paint.setAlpha(trail.getAlpha(i));
+                canvas.drawBitmap(source, null, scratch, paint);
+            }
+        }
+        paint.setAlpha(alpha);
+    }
+
+    /**
+     * Sets {@code out} to the union of the copies of {@code trail}, or empties it when there are none.
+     */
+    public static void getCopyBounds(@NonNull RectF selectionRect, @NonNull TrailTable trail, @NonNull RectF out) {
+        out.setEmpty();
+        for (int i = 0; i < trail.getCount(); i++) {
+            final float halfWidth = selectionRect.width() * trail.getScale(i) / 2;
+            final float halfHeight = selectionRect.height() * trail.getScale(i) / 2;
+            final float centerX = selectionRect.centerX() + trail.getOffsetX(i);
+            final float centerY = selectionRect.centerY() + trail.getOffsetY(i);
+            out.union(centerX - halfWidth, centerY - halfHeight, centerX + halfWidth, centerY + halfHeight);
+        }
+    }
+
+    private static void getCopyRect(@NonNull RectF selectionRect, @NonNull TrailTable trail, int index,
+                                    float scaleX, float scaleY, @NonNull RectF out) {
+        final float halfWidth = selectionRect.width() * trail.getScale(index) / 2;
+        final float halfHeight = selectionRect.height() * trail.getScale(index) / 2;
+        final float centerX = selectionRect.centerX() + trail.getOffsetX(index) * scaleX;
+        final float centerY = selectionRect.centerY() + trail.getOffsetY(index) * scaleY;
+        out.set(centerX - halfWidth, centerY - halfHeight, centerX + halfWidth, centerY + halfHeight);
+    }
+}
@@ -0,0 +1,98 @@
+package com.umut.moveeffect.batch;
+
+import com.umut.moveeffect.geometry.Polygon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * One image to render, read from a properties file:
+ * <pre>
+ * image=photo.jpg
+ * output=photo_moved.png
+ * polygon=10,10 200,15 180,220 12,190
+ * dragX=120
+ * dragY=-40
+ * repCount=7
+ * alpha=47
+ * </pre>
+ * Relative paths are resolved against the job file's directory.
+ */
+final class BatchJob {
+
+    final String name;
+    final File image;
+    final File output;
+    final Polygon polygon;
+    final float dragX;
+    final float dragY;
+    final int repCount;
+    final int alpha;
+
+    private BatchJob(String name, File image, File output, Polygon polygon, float dragX, float dragY,
+                     int repCount, int alpha) {
+        this.name = name;
+        this.image = image;
+        this.output = output;
+        this.polygon = polygon;
+        this.dragX = dragX;
+        this.dragY = dragY;
+        this.repCount = repCount;
+        this.alpha = alpha;
+    }
+
+    static BatchJob read(File jobFile) throws IOException {
+        final Properties properties = new Properties();
+        try (InputStream is = Files.newInputStream(jobFile.toPath())) {
+            properties.load(is);
+        }
+        final File directory = jobFile.getAbsoluteFile().getParentFile();
+        final String name = jobFile.getName();
+        final File image = resolve(directory, require(properties, "image", name));
+        final File output = resolve(directory, require(properties, "output", name));
+        try {
+            return new BatchJob(name, image, output,
+                    parsePolygon(require(properties, "polygon", name), name),
+                    Float.parseFloat(require(properties, "dragX", name)),
+                    Float.parseFloat(require(properties, "dragY", name)),
+                    Integer.parseInt(require(properties, "repCount", name)),
+                    Integer.parseInt(require(properties, "alpha", name)));
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed number in " + name, e);
+        }
+    }
+
+    private static Polygon parsePolygon(String value, String jobName) throws IOException {
+        final Polygon polygon = new Polygon();
+        for (String point : value.trim().split("\\s+")) {
+            final int separator = point.indexOf(',');
+            if (separator <= 0 || separator == point.length() - 1) {
+                throw new IOException("Malformed point '" + point + "' in " + jobName);
+            }
+            final float x = Float.parseFloat(point.substring(0, separator));
+            final float y = Float.parseFloat(point.substring(separator + 1));
+            if (polygon.isEmpty()) {
+                polygon.moveTo(x, y);
+            } else {
+                polygon.lineTo(x, y);
+            }
+        }
+        return polygon;
+    }
+
+    private static String require(Properties properties, String key, String jobName) throws IOException {
+        final String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IOException("Missing '" + key + "' in " + jobName);
+        }
+        return value;
+    }
+
+    private static File resolve(File directory, String path) {
+        final File file = new File(path);
+        return file.isAbsolute() ? file : new File(directory, path);
+    }
+}
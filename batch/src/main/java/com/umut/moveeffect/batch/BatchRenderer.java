@@ -0,0 +1,136 @@
+package com.umut.moveeffect.batch;
+
+import com.umut.moveeffect.raster.ArgbBuffer;
+import com.umut.moveeffect.raster.EffectRenderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Applies the move effect to every {@code *.job} file in a directory, spreading the jobs over a
+ * fork-join pool, and prints per image throughput.
+ * <p>
+ * Usage: {@code BatchRenderer <job directory> [parallelism]}
+ */
+public final class BatchRenderer {
+
+    private static final String JOB_EXTENSION = ".job";
+
+    private BatchRenderer() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: BatchRenderer <job directory> [parallelism]");
+            System.exit(2);
+        }
+        final File[] jobFiles = new File(args[0]).listFiles((dir, name) -> name.endsWith(JOB_EXTENSION));
+        if (jobFiles == null || jobFiles.length == 0) {
+            System.err.println("No " + JOB_EXTENSION + " files in " + args[0]);
+            System.exit(1);
+        }
+        Arrays.sort(jobFiles);
+        final int parallelism = args.length > 1
+                ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        final long start = System.nanoTime();
+        final List<Result> results = pool.invoke(new RenderTask(jobFiles, 0, jobFiles.length));
+        final long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        int failures = 0;
+        long pixels = 0;
+        for (Result result : results) {
+            System.out.println(result);
+            if (result.error != null) {
+                failures++;
+            } else {
+                pixels += result.pixels;
+            }
+        }
+        final double seconds = elapsed / 1e9;
+        System.out.println(String.format(Locale.US,
+                "%d images (%d failed) in %.2f s on %d threads: %.2f images/s, %.2f MP/s",
+                results.size(), failures, seconds, parallelism,
+                (results.size() - failures) / seconds, pixels / 1e6 / seconds));
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    static Result render(File jobFile) {
+        final long start = System.nanoTime();
+        try {
+            final BatchJob job = BatchJob.read(jobFile);
+            final ArgbBuffer source = ImageBuffers.read(job.image);
+            final ArgbBuffer output = EffectRenderer.render(source, job.polygon, job.dragX, job.dragY,
+                    job.repCount, job.alpha);
+            ImageBuffers.write(output, job.output);
+            return new Result(jobFile.getName(), (long) source.getWidth() * source.getHeight(),
+                    System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            return new Result(jobFile.getName(), 0, System.nanoTime() - start, e);
+        }
+    }
+
+    private static final class RenderTask extends RecursiveTask<List<Result>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final File[] jobFiles;
+        private final int from;
+        private final int to;
+
+        RenderTask(File[] jobFiles, int from, int to) {
+            this.jobFiles = jobFiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Result> compute() {
+            if (to - from == 1) {
+                final List<Result> results = new ArrayList<>(1);
+                results.add(render(jobFiles[from]));
+                return results;
+            }
+            final int middle = (from + to) >>> 1;
+            final RenderTask left = new RenderTask(jobFiles, from, middle);
+            left.fork();
+            final List<Result> results = new RenderTask(jobFiles, middle, to).compute();
+            results.addAll(0, left.join());
+            return results;
+        }
+    }
+
+    static final class Result {
+
+        final String name;
+        final long pixels;
+        final long nanos;
+        final Exception error;
+
+        Result(String name, long pixels, long nanos, Exception error) {
+            this.name = name;
+            this.pixels = pixels;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            final double millis = nanos / 1e6;
+            if (error != null) {
+                return String.format(Locale.US, "%s failed after %.1f ms: %s", name, millis, error.getMessage());
+            }
+            return String.format(Locale.US, "%s %.1f ms, %.2f MP/s", name, millis, pixels / 1e3 / millis);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.umut.moveeffect.batch;
+
+import com.umut.moveeffect.raster.ArgbBuffer;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Converts between image files and {@link ArgbBuffer}s through premultiplied {@link BufferedImage}s.
+ */
+final class ImageBuffers {
+
+    private ImageBuffers() {
+    }
+
+    static ArgbBuffer read(File file) throws IOException {
+        final BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Unsupported image " + file);
+        }
+        final BufferedImage premultiplied = new BufferedImage(image.getWidth(), image.getHeight(),
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        final Graphics2D graphics = premultiplied.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        final int[] pixels = ((DataBufferInt) premultiplied.getRaster().getDataBuffer()).getData();
+        return new ArgbBuffer(image.getWidth(), image.getHeight(), pixels);
+    }
+
+    static void write(ArgbBuffer buffer, File file) throws IOException {
+        final String name = file.getName();
+        final String format = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+        final boolean opaque = "jpg".equals(format) || "jpeg".equals(format);
+        final BufferedImage premultiplied = new BufferedImage(buffer.getWidth(), buffer.getHeight(),
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        final int[] pixels = ((DataBufferInt) premultiplied.getRaster().getDataBuffer()).getData();
+        System.arraycopy(buffer.getPixels(), 0, pixels, 0, pixels.length);
+        final BufferedImage image = new BufferedImage(buffer.getWidth(), buffer.getHeight(),
+                opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.drawImage(premultiplied, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        if (!ImageIO.write(image, format, file)) {
+            throw new IOException("No writer for " + format);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.umut.moveeffect.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BitmapBenchmark {
+
+    private static final int LASSO_POINTS = 1000;
+    private static final float VIEW_WIDTH = 1080f;
+    private static final float VIEW_HEIGHT = 1920f;
+
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String imageSize;
+
+    private int width;
+    private int height;
+    private int[] pixels;
+    private float[] xs;
+    private float[] ys;
+    private int left;
+    private int top;
+    private int right;
+    private int bottom;
+
+    @Setup
+    public void setUp() {
+        final String[] size = imageSize.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+        pixels = LassoFixtures.image(width, height);
+        final float[][] lasso = LassoFixtures.lasso(LASSO_POINTS, width / 2f, height / 2f, width / 6f, height / 6f);
+        xs = lasso[0];
+        ys = lasso[1];
+        left = (int) min(xs);
+        top = (int) min(ys);
+        right = (int) max(xs);
+        bottom = (int) max(ys);
+    }
+
+    @Benchmark
+    public int[] resize() {
+        return PixelPorts.resize(pixels, width, height, VIEW_WIDTH, VIEW_HEIGHT);
+    }
+
+    @Benchmark
+    public int[] cropFullFrame() {
+        return PixelPorts.cropFullFrame(pixels, width, height, xs, ys, left, top, right, bottom);
+    }
+
+    @Benchmark
+    public int[] cropRegionOfInterest() {
+        return PixelPorts.cropRegionOfInterest(pixels, width, xs, ys, left, top, right, bottom);
+    }
+
+    private static float min(float[] values) {
+        float min = values[0];
+        for (float value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static float max(float[] values) {
+        float max = values[0];
+        for (float value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+}
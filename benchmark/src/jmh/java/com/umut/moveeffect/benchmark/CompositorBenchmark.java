@@ -0,0 +1,88 @@
+package com.umut.moveeffect.benchmark;
+
+import com.umut.moveeffect.geometry.Polygon;
+import com.umut.moveeffect.raster.ArgbBuffer;
+import com.umut.moveeffect.raster.PolygonCropper;
+import com.umut.moveeffect.raster.StripCompositor;
+import com.umut.moveeffect.raster.TrailLayer;
+import com.umut.moveeffect.render.TrailStyle;
+import com.umut.moveeffect.render.TrailTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the output composite behind {@code getDrawnBitmap} as threads are added: three
+ * kept selections with long trails over a full screen background. The background copy is part of
+ * every operation, as it is when the output bitmap is filled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompositorBenchmark {
+
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 1920;
+    private static final int LASSO_POINTS = 1000;
+    private static final int SELECTION_SIZE = 400;
+    private static final int LAYER_COUNT = 3;
+    private static final int MAX_THREADS = 8;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"20", "60"})
+    public int copies;
+
+    private ExecutorService executor;
+    private StripCompositor compositor;
+    private int[] background;
+    private ArgbBuffer output;
+    private final List<TrailLayer> layers = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(MAX_THREADS - 1);
+        compositor = new StripCompositor(executor, threads);
+        background = LassoFixtures.image(VIEW_WIDTH, VIEW_HEIGHT);
+        output = new ArgbBuffer(VIEW_WIDTH, VIEW_HEIGHT);
+        final ArgbBuffer image = new ArgbBuffer(VIEW_WIDTH, VIEW_HEIGHT, background);
+        layers.clear();
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            final float centerX = VIEW_WIDTH * (i + 1) / (LAYER_COUNT + 1f);
+            final float centerY = VIEW_HEIGHT / 4f + i * VIEW_HEIGHT / 8f;
+            final Polygon polygon = LassoFixtures.polygon(LassoFixtures.lasso(LASSO_POINTS, centerX, centerY,
+                    SELECTION_SIZE / 2f, SELECTION_SIZE / 2f));
+            final TrailTable trail = new TrailTable();
+            trail.update(copies, (i - 1) * 150f, VIEW_HEIGHT / 3f, 160,
+                    new TrailStyle(TrailStyle.CURVE_EASE_OUT, TrailStyle.CURVE_LINEAR, 0.8f, 1f));
+            layers.add(new TrailLayer(PolygonCropper.crop(image, polygon), polygon.getMinX(), polygon.getMinY(),
+                    trail));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public ArgbBuffer composite() {
+        System.arraycopy(background, 0, output.getPixels(), 0, background.length);
+        compositor.composite(output, layers);
+        return output;
+    }
+}
@@ -0,0 +1,132 @@
+package com.umut.moveeffect.benchmark;
+
+import com.umut.moveeffect.geometry.GeometryUtils;
+import com.umut.moveeffect.geometry.Polygon;
+import com.umut.moveeffect.geometry.SegmentGrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GeometryBenchmark {
+
+    private static final float CENTER = 600f;
+    private static final float RADIUS = 400f;
+    private static final float INTERSECT_DEVIATION = 16f;
+    private static final float GRID_CELL_SIZE = 32f;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int pointCount;
+
+    private float[] xs;
+    private float[] ys;
+    private Polygon polygon;
+    private int top;
+    private int bottom;
+
+    @Setup
+    public void setUp() {
+        final float[][] lasso = LassoFixtures.lasso(pointCount, CENTER, CENTER, RADIUS, RADIUS * 0.75f);
+        xs = lasso[0];
+        ys = lasso[1];
+        polygon = LassoFixtures.polygon(lasso);
+        top = (int) polygon.getMinY();
+        bottom = (int) Math.ceil(polygon.getMaxY());
+    }
+
+    @Benchmark
+    public float powDistance() {
+        float sum = 0;
+        for (int i = 1; i < pointCount; i++) {
+            sum += GeometryPorts.getDistance(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float distance() {
+        float sum = 0;
+        for (int i = 1; i < pointCount; i++) {
+            sum += GeometryUtils.distance(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int lazyMatch() {
+        int matches = 0;
+        for (int i = 0; i < pointCount; i++) {
+            if (GeometryUtils.isNear(xs[0], ys[0], xs[i], ys[i], INTERSECT_DEVIATION)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public float regionArea() {
+        return GeometryPorts.regionArea(xs, ys, top, bottom);
+    }
+
+    @Benchmark
+    public float polygonArea() {
+        return polygon.getAreaClosedWith(xs[0], ys[0]);
+    }
+
+    @Benchmark
+    public boolean regionContains() {
+        return GeometryPorts.regionContains(xs, ys, top, bottom, (int) CENTER, (int) CENTER);
+    }
+
+    @Benchmark
+    public boolean polygonContains() {
+        return polygon.contains(CENTER, CENTER);
+    }
+
+    /**
+     * Replays the stroke point by point, checking every new segment for a crossing with the earlier
+     * ones through the grid.
+     */
+    @Benchmark
+    public int strokeCrossingsGrid() {
+        final Polygon stroke = new Polygon();
+        final SegmentGrid grid = new SegmentGrid(GRID_CELL_SIZE);
+        final float[] crossing = new float[2];
+        int crossings = 0;
+        stroke.moveTo(xs[0], ys[0]);
+        for (int i = 1; i < pointCount; i++) {
+            grid.update(stroke);
+            if (grid.findCrossing(stroke, xs[i], ys[i], crossing) >= 0) {
+                crossings++;
+            }
+            stroke.lineTo(xs[i], ys[i]);
+        }
+        return crossings;
+    }
+
+    @Benchmark
+    public int strokeCrossingsAllPairs() {
+        int crossings = 0;
+        for (int i = 1; i < pointCount; i++) {
+            if (GeometryPorts.crossesStroke(xs, ys, i, xs[i], ys[i])) {
+                crossings++;
+            }
+        }
+        return crossings;
+    }
+
+    @Benchmark
+    public Polygon polygonBuild() {
+        return LassoFixtures.polygon(new float[][]{xs, ys});
+    }
+}
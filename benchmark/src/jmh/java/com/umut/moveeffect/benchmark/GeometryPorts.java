@@ -0,0 +1,114 @@
+package com.umut.moveeffect.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Plain Java ports of the {@code PointUtils} operations that used to depend on the Android framework,
+ * kept algorithmically identical so their cost can be compared with the geometry core on the JVM.
+ */
+final class GeometryPorts {
+
+    private GeometryPorts() {
+
+    }
+
+    /**
+     * Port of the {@code PointUtils.getDistance} that predates the geometry core, kept as a baseline.
+     */
+    static float getDistance(float fromX, float fromY, float toX, float toY) {
+        return (float) Math.sqrt(Math.pow(((double) fromX - toX), 2) - Math.pow(((double) fromY - toY), 2));
+    }
+
+    /**
+     * Stand-in for {@code Region.setPath}: scan converts the polygon into one span list per pixel row,
+     * the way the Region based area estimate and hit test did before they moved to the polygon.
+     *
+     * @return spans as {@code [row][left0, right0, left1, right1, ...]}, rows relative to {@code top}
+     */
+    static int[][] rasterize(float[] xs, float[] ys, int top, int bottom) {
+        final int count = xs.length;
+        final int[][] rows = new int[Math.max(0, bottom - top)][];
+        final float[] crossings = new float[count];
+        for (int row = top; row < bottom; row++) {
+            final float y = row + 0.5f;
+            int crossingCount = 0;
+            float px = xs[count - 1];
+            float py = ys[count - 1];
+            for (int i = 0; i < count; i++) {
+                if ((ys[i] > y) != (py > y)) {
+                    crossings[crossingCount++] = (px - xs[i]) * (y - ys[i]) / (py - ys[i]) + xs[i];
+                }
+                px = xs[i];
+                py = ys[i];
+            }
+            Arrays.sort(crossings, 0, crossingCount);
+            final int[] spans = new int[crossingCount];
+            for (int i = 0; i + 1 < crossingCount; i += 2) {
+                spans[i] = Math.round(crossings[i]);
+                spans[i + 1] = Math.round(crossings[i + 1]);
+            }
+            rows[row - top] = spans;
+        }
+        return rows;
+    }
+
+    /**
+     * Port of {@code PointUtils.computePathArea}: average area of the region's rects.
+     */
+    static float regionArea(float[] xs, float[] ys, int top, int bottom) {
+        final int[][] rows = rasterize(xs, ys, top, bottom);
+        int size = 0;
+        float area = 0;
+        for (int[] spans : rows) {
+            for (int i = 0; i + 1 < spans.length; i += 2) {
+                size++;
+                area += spans[i + 1] - spans[i];
+            }
+        }
+        return area / size;
+    }
+
+    /**
+     * Port of the Region based {@code PointUtils.checkPointInsidePath}.
+     */
+    static boolean regionContains(float[] xs, float[] ys, int top, int bottom, int x, int y) {
+        final int[][] rows = rasterize(xs, ys, top, bottom);
+        if (y < top || y >= bottom) {
+            return false;
+        }
+        final int[] spans = rows[y - top];
+        for (int i = 0; i + 1 < spans.length; i += 2) {
+            if (x >= spans[i] && x < spans[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Self-intersection check without an index: the segment from the last point to {@code (x, y)}
+     * is tested against every earlier segment of the stroke.
+     */
+    static boolean crossesStroke(float[] xs, float[] ys, int count, float x, float y) {
+        final float startX = xs[count - 1];
+        final float startY = ys[count - 1];
+        final float rx = x - startX;
+        final float ry = y - startY;
+        for (int i = 0; i < count - 2; i++) {
+            final float sx = xs[i + 1] - xs[i];
+            final float sy = ys[i + 1] - ys[i];
+            final float denominator = rx * sy - ry * sx;
+            if (denominator == 0f) {
+                continue;
+            }
+            final float qx = xs[i] - startX;
+            final float qy = ys[i] - startY;
+            final float t = (qx * sy - qy * sx) / denominator;
+            final float u = (qx * ry - qy * rx) / denominator;
+            if (t > 0f && t <= 1f && u >= 0f && u <= 1f) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
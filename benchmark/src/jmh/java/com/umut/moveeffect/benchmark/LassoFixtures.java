@@ -0,0 +1,50 @@
+package com.umut.moveeffect.benchmark;
+
+import com.umut.moveeffect.geometry.Polygon;
+
+import java.util.Random;
+
+/**
+ * Deterministic freehand-like lassos: a wobbly ellipse sampled at a fixed number of points.
+ */
+final class LassoFixtures {
+
+    private static final long SEED = 42L;
+
+    private LassoFixtures() {
+
+    }
+
+    static float[][] lasso(int pointCount, float centerX, float centerY, float radiusX, float radiusY) {
+        final Random random = new Random(SEED);
+        final float[] xs = new float[pointCount];
+        final float[] ys = new float[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            final double angle = 2 * Math.PI * i / pointCount;
+            final double wobble = 1 + 0.08 * Math.sin(angle * 7) + 0.02 * random.nextGaussian();
+            xs[i] = (float) (centerX + Math.cos(angle) * radiusX * wobble);
+            ys[i] = (float) (centerY + Math.sin(angle) * radiusY * wobble);
+        }
+        return new float[][]{xs, ys};
+    }
+
+    static Polygon polygon(float[][] lasso) {
+        final Polygon polygon = new Polygon();
+        final float[] xs = lasso[0];
+        final float[] ys = lasso[1];
+        polygon.moveTo(xs[0], ys[0]);
+        for (int i = 1; i < xs.length; i++) {
+            polygon.lineTo(xs[i], ys[i]);
+        }
+        return polygon;
+    }
+
+    static int[] image(int width, int height) {
+        final Random random = new Random(SEED);
+        final int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,67 @@
+package com.umut.moveeffect.benchmark;
+
+import com.umut.moveeffect.geometry.Polygon;
+import com.umut.moveeffect.raster.ArgbBuffer;
+import com.umut.moveeffect.raster.MaskFeather;
+import com.umut.moveeffect.raster.PolygonCropper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of feathering a selection once it is closed, against the plain crop. The feathered crop has to
+ * stay well inside a 16 ms frame for the selection sizes a finger draws on a phone screen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MaskBenchmark {
+
+    private static final int LASSO_POINTS = 1000;
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 1920;
+
+    @Param({"128", "256", "512"})
+    public int selectionSize;
+
+    @Param({"2", "8"})
+    public int featherRadius;
+
+    private ArgbBuffer image;
+    private Polygon polygon;
+    private byte[] mask;
+    private int maskSize;
+
+    @Setup
+    public void setUp() {
+        image = new ArgbBuffer(VIEW_WIDTH, VIEW_HEIGHT, LassoFixtures.image(VIEW_WIDTH, VIEW_HEIGHT));
+        polygon = LassoFixtures.polygon(LassoFixtures.lasso(LASSO_POINTS, VIEW_WIDTH / 2f, VIEW_HEIGHT / 2f,
+                selectionSize / 2f, selectionSize / 2f));
+        maskSize = selectionSize + 2 * MaskFeather.getPadding(featherRadius);
+        mask = new byte[maskSize * maskSize];
+    }
+
+    @Benchmark
+    public ArgbBuffer crop() {
+        return PolygonCropper.crop(image, polygon);
+    }
+
+    @Benchmark
+    public ArgbBuffer cropFeathered() {
+        return PolygonCropper.crop(image, polygon, featherRadius);
+    }
+
+    @Benchmark
+    public byte[] blur() {
+        MaskFeather.blur(mask, maskSize, maskSize, maskSize, featherRadius);
+        return mask;
+    }
+}
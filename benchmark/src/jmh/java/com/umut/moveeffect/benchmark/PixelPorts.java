@@ -0,0 +1,84 @@
+package com.umut.moveeffect.benchmark;
+
+/**
+ * Plain Java ports of the {@code BitmapUtils} operations over ARGB_8888 int buffers.
+ */
+final class PixelPorts {
+
+    private PixelPorts() {
+
+    }
+
+    /**
+     * Port of {@code BitmapUtils.resize}: aspect-fit nearest neighbour scaling, like
+     * {@code Bitmap.createScaledBitmap} with filtering off.
+     */
+    static int[] resize(int[] src, int width, int height, float maxWidth, float maxHeight) {
+        final float ratioBitmap = (float) width / (float) height;
+        final float ratioMax = maxWidth / maxHeight;
+        float finalWidth = maxWidth;
+        float finalHeight = maxHeight;
+        if (ratioMax > ratioBitmap) {
+            finalWidth = (int) (maxHeight * ratioBitmap);
+        } else {
+            finalHeight = (int) (maxWidth / ratioBitmap);
+        }
+        final int dstWidth = (int) finalWidth;
+        final int dstHeight = (int) finalHeight;
+        final int[] dst = new int[dstWidth * dstHeight];
+        for (int y = 0; y < dstHeight; y++) {
+            final int srcRow = (int) ((long) y * height / dstHeight) * width;
+            final int dstRow = y * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                dst[dstRow + x] = src[srcRow + (int) ((long) x * width / dstWidth)];
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Port of {@code BitmapUtils.getCroppedBitmap} before region-of-interest cropping: masks and
+     * composites a full size buffer, then copies the bounding rect out of it.
+     */
+    static int[] cropFullFrame(int[] src, int width, int height, float[] xs, float[] ys,
+                               int left, int top, int right, int bottom) {
+        final int[] output = new int[width * height];
+        final int[][] rows = GeometryPorts.rasterize(xs, ys, 0, height);
+        for (int y = 0; y < height; y++) {
+            final int[] spans = rows[y];
+            for (int i = 0; i + 1 < spans.length; i += 2) {
+                final int from = Math.max(0, spans[i]);
+                final int to = Math.min(width, spans[i + 1]);
+                System.arraycopy(src, y * width + from, output, y * width + from, Math.max(0, to - from));
+            }
+        }
+        final int cropWidth = right - left;
+        final int[] cropped = new int[cropWidth * (bottom - top)];
+        for (int y = top; y < bottom; y++) {
+            System.arraycopy(output, y * width + left, cropped, (y - top) * cropWidth, cropWidth);
+        }
+        return cropped;
+    }
+
+    /**
+     * Port of the current {@code BitmapUtils.getCroppedBitmap}: only the bounding rect is allocated
+     * and composited.
+     */
+    static int[] cropRegionOfInterest(int[] src, int width, float[] xs, float[] ys,
+                                      int left, int top, int right, int bottom) {
+        final int cropWidth = right - left;
+        final int[] cropped = new int[cropWidth * (bottom - top)];
+        final int[][] rows = GeometryPorts.rasterize(xs, ys, top, bottom);
+        for (int y = top; y < bottom; y++) {
+            final int[] spans = rows[y - top];
+            for (int i = 0; i + 1 < spans.length; i += 2) {
+                final int from = Math.max(left, spans[i]);
+                final int to = Math.min(right, spans[i + 1]);
+                if (to > from) {
+                    System.arraycopy(src, y * width + from, cropped, (y - top) * cropWidth + from - left, to - from);
+                }
+            }
+        }
+        return cropped;
+    }
+}
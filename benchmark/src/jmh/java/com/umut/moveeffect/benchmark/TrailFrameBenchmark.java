@@ -0,0 +1,84 @@
+package com.umut.moveeffect.benchmark;
+
+import com.umut.moveeffect.geometry.Polygon;
+import com.umut.moveeffect.raster.ArgbBuffer;
+import com.umut.moveeffect.raster.PolygonCropper;
+import com.umut.moveeffect.raster.TrailCompositor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame time of {@code EditableImageView.drawOverlays} in steady state, with every copy of the trail
+ * drawn again against one blit of the cached trail layer. Both frames start from the background, as
+ * the view draws it first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrailFrameBenchmark {
+
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 1920;
+    private static final int LASSO_POINTS = 1000;
+    private static final int SELECTION_SIZE = 400;
+    private static final float DRAG_X = 300f;
+    private static final float DRAG_Y = 900f;
+    private static final int TRAIL_ALPHA = 160;
+
+    @Param({"3", "7", "50"})
+    public int repCount;
+
+    private int[] background;
+    private ArgbBuffer frame;
+    private ArgbBuffer cropped;
+    private ArgbBuffer trailLayer;
+    private int left;
+    private int top;
+    private int layerLeft;
+    private int layerTop;
+
+    @Setup
+    public void setUp() {
+        background = LassoFixtures.image(VIEW_WIDTH, VIEW_HEIGHT);
+        frame = new ArgbBuffer(VIEW_WIDTH, VIEW_HEIGHT);
+        final Polygon polygon = LassoFixtures.polygon(LassoFixtures.lasso(LASSO_POINTS, VIEW_WIDTH / 3f,
+                VIEW_HEIGHT / 4f, SELECTION_SIZE / 2f, SELECTION_SIZE / 2f));
+        cropped = PolygonCropper.crop(new ArgbBuffer(VIEW_WIDTH, VIEW_HEIGHT, background), polygon);
+        left = (int) polygon.getMinX();
+        top = (int) polygon.getMinY();
+
+        // the cached layer covers the copies only, like trailBitmap over trailBounds
+        layerLeft = left + Math.round(Math.min(DRAG_X / repCount, 0));
+        layerTop = top + Math.round(Math.min(DRAG_Y / repCount, 0));
+        trailLayer = new ArgbBuffer(cropped.getWidth() + (int) Math.ceil(Math.abs(DRAG_X)),
+                cropped.getHeight() + (int) Math.ceil(Math.abs(DRAG_Y)));
+        TrailCompositor.drawCopies(trailLayer, cropped, left - layerLeft, top - layerTop,
+                DRAG_X / repCount, DRAG_Y / repCount, repCount, TRAIL_ALPHA, 0, trailLayer.getHeight());
+    }
+
+    @Benchmark
+    public ArgbBuffer redrawCopies() {
+        System.arraycopy(background, 0, frame.getPixels(), 0, background.length);
+        TrailCompositor.drawCopies(frame, cropped, left, top, DRAG_X / repCount, DRAG_Y / repCount, repCount,
+                TRAIL_ALPHA, 0, VIEW_HEIGHT);
+        TrailCompositor.blit(frame, cropped, left, top, 255, 0, VIEW_HEIGHT);
+        return frame;
+    }
+
+    @Benchmark
+    public ArgbBuffer cachedLayer() {
+        System.arraycopy(background, 0, frame.getPixels(), 0, background.length);
+        TrailCompositor.blit(frame, trailLayer, layerLeft, layerTop, 255, 0, VIEW_HEIGHT);
+        TrailCompositor.blit(frame, cropped, left, top, 255, 0, VIEW_HEIGHT);
+        return frame;
+    }
+}
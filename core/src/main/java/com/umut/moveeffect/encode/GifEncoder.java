@@ -0,0 +1,146 @@
+package com.umut.moveeffect.encode;
+
+import com.umut.moveeffect.raster.ArgbBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streaming animated GIF writer. Every frame is quantized to its own palette, compressed and
+ * written as soon as it is added, so memory does not depend on the number of frames. A frame may
+ * cover only part of the canvas; frames are never disposed, so each one is drawn over what the
+ * previous ones left. Colors are read as opaque premultiplied ARGB, anything translucent comes out
+ * as if composited over black.
+ */
+public final class GifEncoder {
+
+    private static final int EXTENSION_INTRODUCER = 0x21;
+    private static final int GRAPHIC_CONTROL_LABEL = 0xF9;
+    private static final int APPLICATION_LABEL = 0xFF;
+    private static final int IMAGE_SEPARATOR = 0x2C;
+    private static final int TRAILER = 0x3B;
+    private static final int DISPOSAL_DO_NOT_DISPOSE = 1 << 2;
+    private static final int LOCAL_COLOR_TABLE = 0x80;
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final MedianCutQuantizer quantizer = new MedianCutQuantizer();
+    private final LzwEncoder lzw = new LzwEncoder();
+    private int frameCount;
+    private boolean finished;
+
+    /**
+     * Writes the header right away.
+     *
+     * @param loopCount times the animation repeats, 0 to repeat forever
+     */
+    public GifEncoder(OutputStream out, int width, int height, int loopCount) throws IOException {
+        if (width <= 0 || height <= 0 || width > 0xFFFF || height > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid canvas " + width + "x" + height);
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        out.write(new byte[]{'G', 'I', 'F', '8', '9', 'a'});
+        writeShort(width);
+        writeShort(height);
+        // no global color table, 8 bits of color resolution
+        out.write(0x70);
+        out.write(0);
+        out.write(0);
+
+        out.write(EXTENSION_INTRODUCER);
+        out.write(APPLICATION_LABEL);
+        out.write(11);
+        out.write(new byte[]{'N', 'E', 'T', 'S', 'C', 'A', 'P', 'E', '2', '.', '0'});
+        out.write(3);
+        out.write(1);
+        writeShort(loopCount);
+        out.write(0);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Writes {@code frame} at ({@code left}, {@code top}) of the canvas, shown for {@code delayMillis}
+     * before the next frame. The frame has to lie inside the canvas.
+     */
+    public void addFrame(ArgbBuffer frame, int left, int top, int delayMillis) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Encoder already finished");
+        }
+        final int frameWidth = frame.getWidth();
+        final int frameHeight = frame.getHeight();
+        if (left < 0 || top < 0 || left + frameWidth > width || top + frameHeight > height) {
+            throw new IllegalArgumentException("Frame " + frameWidth + "x" + frameHeight + " at " + left + ","
+                    + top + " outside of the canvas");
+        }
+        final int[] pixels = frame.getPixels();
+        quantizer.build(pixels, 0, frameWidth, frameWidth, frameHeight);
+        final int paletteBits = getPaletteBits(quantizer.getPaletteSize());
+
+        out.write(EXTENSION_INTRODUCER);
+        out.write(GRAPHIC_CONTROL_LABEL);
+        out.write(4);
+        out.write(DISPOSAL_DO_NOT_DISPOSE);
+        writeShort(Math.min((delayMillis + 5) / 10, 0xFFFF));
+        out.write(0);
+        out.write(0);
+
+        out.write(IMAGE_SEPARATOR);
+        writeShort(left);
+        writeShort(top);
+        writeShort(frameWidth);
+        writeShort(frameHeight);
+        out.write(LOCAL_COLOR_TABLE | (paletteBits - 1));
+        for (int i = 0; i < 1 << paletteBits; i++) {
+            final int color = i < quantizer.getPaletteSize() ? quantizer.getColor(i) : 0;
+            out.write((color >> 16) & 0xFF);
+            out.write((color >> 8) & 0xFF);
+            out.write(color & 0xFF);
+        }
+
+        lzw.begin(out, paletteBits);
+        for (int i = 0; i < frameWidth * frameHeight; i++) {
+            lzw.add(quantizer.indexOf(pixels[i]));
+        }
+        lzw.end();
+        frameCount++;
+    }
+
+    /**
+     * Writes the trailer and flushes the stream, which is left open.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        out.write(TRAILER);
+        out.flush();
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >> 8) & 0xFF);
+    }
+
+    private static int getPaletteBits(int colorCount) {
+        int bits = 1;
+        while (1 << bits < colorCount) {
+            bits++;
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,133 @@
+package com.umut.moveeffect.encode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Variable code size LZW compressor for GIF image data. Indices are fed one at a time and the
+ * compressed bytes go straight to the stream in sub-blocks of up to 255 bytes, so nothing but the
+ * string table is kept per frame. The table is cleared once all 4096 codes are taken.
+ */
+final class LzwEncoder {
+
+    private static final int MAX_BITS = 12;
+    private static final int MAX_CODE = 1 << MAX_BITS;
+    // prime above 4096 / 0.8, the occupancy of the string table stays below 80%
+    private static final int TABLE_SIZE = 5003;
+    private static final int BLOCK_SIZE = 255;
+
+    private final int[] tableKeys = new int[TABLE_SIZE];
+    private final int[] tableCodes = new int[TABLE_SIZE];
+    private final byte[] block = new byte[BLOCK_SIZE];
+
+    private OutputStream out;
+    private int initialBits;
+    private int clearCode;
+    private int codeBits;
+    private int nextCode;
+    private int prefix;
+    private boolean started;
+    private int bitBuffer;
+    private int bitCount;
+    private int blockLength;
+
+    /**
+     * Starts the image data of a frame: writes the minimum code size and a clear code.
+     *
+     * @param paletteBits number of bits of the color table, 1 to 8
+     */
+    void begin(OutputStream out, int paletteBits) throws IOException {
+        this.out = out;
+        initialBits = Math.max(2, paletteBits);
+        clearCode = 1 << initialBits;
+        started = false;
+        bitBuffer = 0;
+        bitCount = 0;
+        blockLength = 0;
+        out.write(initialBits);
+        resetTable();
+        writeCode(clearCode);
+    }
+
+    void add(int index) throws IOException {
+        if (!started) {
+            prefix = index;
+            started = true;
+            return;
+        }
+        final int key = (index << MAX_BITS) | prefix;
+        int slot = (index << 4 ^ prefix) % TABLE_SIZE;
+        while (tableKeys[slot] != -1) {
+            if (tableKeys[slot] == key) {
+                prefix = tableCodes[slot];
+                return;
+            }
+            slot = slot == 0 ? TABLE_SIZE - 1 : slot - 1;
+        }
+        writeCode(prefix);
+        if (nextCode < MAX_CODE) {
+            // the decoder adds this entry only after reading the next code, so the width follows the
+            // table size before the entry
+            if (nextCode >= 1 << codeBits && codeBits < MAX_BITS) {
+                codeBits++;
+            }
+            tableKeys[slot] = key;
+            tableCodes[slot] = nextCode++;
+        } else {
+            writeCode(clearCode);
+            resetTable();
+        }
+        prefix = index;
+    }
+
+    /**
+     * Writes the pending string, the end of information code and the block terminator.
+     */
+    void end() throws IOException {
+        if (started) {
+            writeCode(prefix);
+            if (nextCode >= 1 << codeBits && codeBits < MAX_BITS) {
+                codeBits++;
+            }
+        }
+        writeCode(clearCode + 1);
+        if (bitCount > 0) {
+            writeByte(bitBuffer & 0xFF);
+        }
+        flushBlock();
+        out.write(0);
+        out = null;
+    }
+
+    private void resetTable() {
+        Arrays.fill(tableKeys, -1);
+        codeBits = initialBits + 1;
+        nextCode = clearCode + 2;
+    }
+
+    private void writeCode(int code) throws IOException {
+        bitBuffer |= code << bitCount;
+        bitCount += codeBits;
+        while (bitCount >= 8) {
+            writeByte(bitBuffer & 0xFF);
+            bitBuffer >>>= 8;
+            bitCount -= 8;
+        }
+    }
+
+    private void writeByte(int value) throws IOException {
+        block[blockLength++] = (byte) value;
+        if (blockLength == BLOCK_SIZE) {
+            flushBlock();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockLength > 0) {
+            out.write(blockLength);
+            out.write(block, 0, blockLength);
+            blockLength = 0;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.umut.moveeffect.encode;
+
+import java.util.Arrays;
+
+/**
+ * Median cut palette for one frame. Colors are binned at 5 bits per channel; the box holding the
+ * most pixels is split at the pixel median of its longest axis until the palette is full, and every
+ * box becomes the average of the colors that fell into it. All tables are reused between frames.
+ */
+final class MedianCutQuantizer {
+
+    static final int MAX_COLORS = 256;
+
+    private static final int BIN_COUNT = 1 << 15;
+
+    private final int[] counts = new int[BIN_COUNT];
+    private final long[] sumRed = new long[BIN_COUNT];
+    private final long[] sumGreen = new long[BIN_COUNT];
+    private final long[] sumBlue = new long[BIN_COUNT];
+    private final byte[] binIndex = new byte[BIN_COUNT];
+    // the bins in use, reordered in place by the splits; sort keys are packed above the bin
+    private final int[] bins = new int[BIN_COUNT];
+    private final int[] boxStart = new int[MAX_COLORS];
+    private final int[] boxEnd = new int[MAX_COLORS];
+    private final int[] boxPixels = new int[MAX_COLORS];
+    private final int[] palette = new int[MAX_COLORS];
+    private int paletteSize;
+
+    /**
+     * Builds the palette of the {@code width} x {@code height} area at {@code offset} of {@code pixels}.
+     * Pixels are read as opaque, premultiplied colors come out composited over black.
+     */
+    void build(int[] pixels, int offset, int stride, int width, int height) {
+        Arrays.fill(counts, 0);
+        Arrays.fill(sumRed, 0);
+        Arrays.fill(sumGreen, 0);
+        Arrays.fill(sumBlue, 0);
+        for (int row = 0; row < height; row++) {
+            final int rowStart = offset + row * stride;
+            for (int i = rowStart; i < rowStart + width; i++) {
+                final int color = pixels[i];
+                final int bin = binOf(color);
+                counts[bin]++;
+                sumRed[bin] += (color >> 16) & 0xFF;
+                sumGreen[bin] += (color >> 8) & 0xFF;
+                sumBlue[bin] += color & 0xFF;
+            }
+        }
+        int binCount = 0;
+        for (int bin = 0; bin < BIN_COUNT; bin++) {
+            if (counts[bin] != 0) {
+                bins[binCount++] = bin;
+            }
+        }
+        boxStart[0] = 0;
+        boxEnd[0] = binCount;
+        boxPixels[0] = width * height;
+        int boxCount = 1;
+        while (boxCount < MAX_COLORS) {
+            final int box = findLargestSplittableBox(boxCount);
+            if (box < 0) {
+                break;
+            }
+            split(box, boxCount++);
+        }
+        for (int box = 0; box < boxCount; box++) {
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            for (int i = boxStart[box]; i < boxEnd[box]; i++) {
+                final int bin = bins[i];
+                red += sumRed[bin];
+                green += sumGreen[bin];
+                blue += sumBlue[bin];
+                binIndex[bin] = (byte) box;
+            }
+            final long pixelCount = Math.max(boxPixels[box], 1);
+            palette[box] = (int) ((red + pixelCount / 2) / pixelCount) << 16
+                    | (int) ((green + pixelCount / 2) / pixelCount) << 8
+                    | (int) ((blue + pixelCount / 2) / pixelCount);
+        }
+        paletteSize = boxCount;
+    }
+
+    int getPaletteSize() {
+        return paletteSize;
+    }
+
+    /**
+     * @return palette entry as {@code 0xRRGGBB}
+     */
+    int getColor(int index) {
+        return palette[index];
+    }
+
+    int indexOf(int color) {
+        return binIndex[binOf(color)] & 0xFF;
+    }
+
+    private int findLargestSplittableBox(int boxCount) {
+        int largest = -1;
+        for (int box = 0; box < boxCount; box++) {
+            if (boxEnd[box] - boxStart[box] > 1 && (largest < 0 || boxPixels[box] > boxPixels[largest])) {
+                largest = box;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Sorts the bins of {@code box} along its longest axis and moves the upper half by pixel count
+     * into {@code newBox}.
+     */
+    private void split(int box, int newBox) {
+        final int start = boxStart[box];
+        final int end = boxEnd[box];
+        int shift = 10;
+        int longest = -1;
+        for (int axisShift = 0; axisShift <= 10; axisShift += 5) {
+            int min = 31;
+            int max = 0;
+            for (int i = start; i < end; i++) {
+                final int value = (bins[i] >> axisShift) & 0x1F;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > longest) {
+                longest = max - min;
+                shift = axisShift;
+            }
+        }
+        for (int i = start; i < end; i++) {
+            bins[i] |= ((bins[i] >> shift) & 0x1F) << 15;
+        }
+        Arrays.sort(bins, start, end);
+        for (int i = start; i < end; i++) {
+            bins[i] &= BIN_COUNT - 1;
+        }
+        // both halves keep at least one bin
+        final int half = boxPixels[box] / 2;
+        int seen = counts[bins[start]];
+        int median = start + 1;
+        while (median < end - 1 && seen < half) {
+            seen += counts[bins[median++]];
+        }
+        boxEnd[box] = median;
+        boxStart[newBox] = median;
+        boxEnd[newBox] = end;
+        boxPixels[newBox] = boxPixels[box] - seen;
+        boxPixels[box] = seen;
+    }
+
+    private static int binOf(int color) {
+        return (color >> 9) & 0x7C00 | (color >> 6) & 0x3E0 | (color >> 3) & 0x1F;
+    }
+}
@@ -0,0 +1,163 @@
+package com.umut.moveeffect.encode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streaming PNG writer for images too large to hold at once. Rows are filtered, compressed and
+ * written as they are added, so memory is two rows plus the compressor whatever the image height.
+ * Pixels are read as straight, not premultiplied, ARGB, the layout {@code Bitmap.getPixels} returns,
+ * and written as 8 bit RGBA with the Paeth filter on every row.
+ */
+public final class PngEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int COLOR_TYPE_RGBA = 6;
+    private static final int FILTER_PAETH = 4;
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final CRC32 crc = new CRC32();
+    private final byte[] header = new byte[8];
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int chunkLength;
+    private byte[] previousRow;
+    private byte[] row;
+    private final byte[] filtered;
+    private int rowCount;
+    private boolean finished;
+
+    /**
+     * Writes the signature and the image header right away.
+     */
+    public PngEncoder(OutputStream out, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0 || width > (Integer.MAX_VALUE - 1) / BYTES_PER_PIXEL) {
+            throw new IllegalArgumentException("Invalid image " + width + "x" + height);
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.previousRow = new byte[width * BYTES_PER_PIXEL];
+        this.row = new byte[width * BYTES_PER_PIXEL];
+        this.filtered = new byte[1 + width * BYTES_PER_PIXEL];
+        out.write(SIGNATURE);
+        final byte[] imageHeader = new byte[13];
+        putInt(imageHeader, 0, width);
+        putInt(imageHeader, 4, height);
+        imageHeader[8] = 8;
+        imageHeader[9] = COLOR_TYPE_RGBA;
+        // deflate compression, adaptive filtering, no interlace
+        writeChunk('I', 'H', 'D', 'R', imageHeader, imageHeader.length);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Writes the next row, {@code width} pixels of {@code pixels} from {@code offset}.
+     */
+    public void addRow(int[] pixels, int offset) throws IOException {
+        if (finished || rowCount == height) {
+            throw new IllegalStateException("All " + height + " rows already written");
+        }
+        for (int i = 0, x = offset; x < offset + width; x++) {
+            final int color = pixels[x];
+            row[i++] = (byte) (color >> 16);
+            row[i++] = (byte) (color >> 8);
+            row[i++] = (byte) color;
+            row[i++] = (byte) (color >>> 24);
+        }
+        filtered[0] = FILTER_PAETH;
+        for (int i = 0; i < row.length; i++) {
+            final int left = i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] & 0xFF : 0;
+            final int up = previousRow[i] & 0xFF;
+            final int upLeft = i >= BYTES_PER_PIXEL ? previousRow[i - BYTES_PER_PIXEL] & 0xFF : 0;
+            filtered[i + 1] = (byte) ((row[i] & 0xFF) - paeth(left, up, upLeft));
+        }
+        deflater.setInput(filtered, 0, filtered.length);
+        while (!deflater.needsInput()) {
+            drain();
+        }
+        final byte[] swap = previousRow;
+        previousRow = row;
+        row = swap;
+        rowCount++;
+    }
+
+    /**
+     * Writes the remaining compressed data and the trailer and flushes the stream, which is left
+     * open. Every row has to be added first.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (rowCount != height) {
+            throw new IllegalStateException("Only " + rowCount + " of " + height + " rows written");
+        }
+        finished = true;
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain();
+        }
+        deflater.end();
+        if (chunkLength > 0) {
+            writeChunk('I', 'D', 'A', 'T', chunk, chunkLength);
+        }
+        writeChunk('I', 'E', 'N', 'D', chunk, 0);
+        out.flush();
+    }
+
+    private void drain() throws IOException {
+        chunkLength += deflater.deflate(chunk, chunkLength, chunk.length - chunkLength);
+        if (chunkLength == chunk.length) {
+            writeChunk('I', 'D', 'A', 'T', chunk, chunkLength);
+            chunkLength = 0;
+        }
+    }
+
+    private void writeChunk(char type0, char type1, char type2, char type3, byte[] data, int length)
+            throws IOException {
+        putInt(header, 0, length);
+        header[4] = (byte) type0;
+        header[5] = (byte) type1;
+        header[6] = (byte) type2;
+        header[7] = (byte) type3;
+        crc.reset();
+        crc.update(header, 4, 4);
+        crc.update(data, 0, length);
+        out.write(header);
+        out.write(data, 0, length);
+        putInt(header, 0, (int) crc.getValue());
+        out.write(header, 0, 4);
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        final int estimate = left + up - upLeft;
+        final int distanceLeft = Math.abs(estimate - left);
+        final int distanceUp = Math.abs(estimate - up);
+        final int distanceUpLeft = Math.abs(estimate - upLeft);
+        if (distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft) {
+            return left;
+        }
+        return distanceUp <= distanceUpLeft ? up : upLeft;
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,133 @@
+package com.umut.moveeffect.encode;
+
+import com.umut.moveeffect.raster.ArgbBuffer;
+import com.umut.moveeffect.raster.QuadBatchRasterizer;
+import com.umut.moveeffect.raster.TrailLayer;
+import com.umut.moveeffect.render.QuadBatch;
+import com.umut.moveeffect.render.TrailTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the build-up of trails as an animation: the first frame shows the selections without
+ * copies, every following frame adds the next copy of each trail. Only the area the new copies
+ * cover is composited again, from the background up, and encoded, so a frame costs in proportion to
+ * the copies it adds and memory stays at one background and one scratch buffer of the canvas size.
+ */
+public final class TrailAnimationWriter {
+
+    private final ArgbBuffer background;
+    private final List<TrailLayer> layers = new ArrayList<>();
+    private final QuadBatch batch = new QuadBatch();
+    private final int[] scratch;
+
+    /**
+     * @param background canvas of the animation, not modified
+     */
+    public TrailAnimationWriter(ArgbBuffer background) {
+        this.background = background;
+        this.scratch = new int[background.getWidth() * background.getHeight()];
+    }
+
+    public void addLayer(TrailLayer layer) {
+        layers.add(layer);
+    }
+
+    /**
+     * @return one frame without copies plus one per copy of the longest trail
+     */
+    public int getFrameCount() {
+        int copies = 0;
+        for (int i = 0; i < layers.size(); i++) {
+            copies = Math.max(copies, layers.get(i).getTrail().getCount());
+        }
+        return copies + 1;
+    }
+
+    /**
+     * Writes every frame to {@code encoder}, which has to be as large as the background. The last
+     * frame stays for {@code lastDelayMillis}, the others for {@code delayMillis}.
+     */
+    public void write(GifEncoder encoder, int delayMillis, int lastDelayMillis) throws IOException {
+        if (encoder.getWidth() != background.getWidth() || encoder.getHeight() != background.getHeight()) {
+            throw new IllegalArgumentException("Encoder does not match the background");
+        }
+        final int frameCount = getFrameCount();
+        final int[] dirty = new int[4];
+        for (int frame = 0; frame < frameCount; frame++) {
+            if (frame == 0) {
+                dirty[0] = 0;
+                dirty[1] = 0;
+                dirty[2] = background.getWidth();
+                dirty[3] = background.getHeight();
+            } else {
+                computeDirtyRect(frame - 1, dirty);
+            }
+            final ArgbBuffer region = composite(dirty[0], dirty[1], dirty[2], dirty[3], frame);
+            encoder.addFrame(region, dirty[0], dirty[1], frame == frameCount - 1 ? lastDelayMillis : delayMillis);
+        }
+    }
+
+    /**
+     * Sets {@code out} to left, top, right and bottom of the copies at {@code copy}, clipped to the
+     * canvas. A copy that falls outside still gets a one pixel frame, so the frame count holds.
+     */
+    private void computeDirtyRect(int copy, int[] out) {
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (int i = 0; i < layers.size(); i++) {
+            final TrailLayer layer = layers.get(i);
+            final TrailTable trail = layer.getTrail();
+            if (copy >= trail.getCount()) {
+                continue;
+            }
+            final ArgbBuffer crop = layer.getCrop();
+            final float halfWidth = crop.getWidth() * trail.getScale(copy) / 2;
+            final float halfHeight = crop.getHeight() * trail.getScale(copy) / 2;
+            final float centerX = layer.getLeft() + crop.getWidth() / 2f + trail.getOffsetX(copy);
+            final float centerY = layer.getTop() + crop.getHeight() / 2f + trail.getOffsetY(copy);
+            left = Math.min(left, centerX - halfWidth);
+            top = Math.min(top, centerY - halfHeight);
+            right = Math.max(right, centerX + halfWidth);
+            bottom = Math.max(bottom, centerY + halfHeight);
+        }
+        // one pixel of slack for the rounding of the quads
+        out[0] = Math.max(0, (int) Math.floor(left) - 1);
+        out[1] = Math.max(0, (int) Math.floor(top) - 1);
+        out[2] = Math.min(background.getWidth(), (int) Math.ceil(right) + 1);
+        out[3] = Math.min(background.getHeight(), (int) Math.ceil(bottom) + 1);
+        if (out[0] >= out[2] || out[1] >= out[3]) {
+            out[0] = 0;
+            out[1] = 0;
+            out[2] = 1;
+            out[3] = 1;
+        }
+    }
+
+    /**
+     * @return the canvas area from ({@code left}, {@code top}) to ({@code right}, {@code bottom}) with
+     * the first {@code copies} copies of every trail, backed by the scratch buffer
+     */
+    private ArgbBuffer composite(int left, int top, int right, int bottom, int copies) {
+        final int width = right - left;
+        final int height = bottom - top;
+        final ArgbBuffer region = new ArgbBuffer(width, height, scratch);
+        final int[] backgroundPixels = background.getPixels();
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(backgroundPixels, (top + row) * background.getWidth() + left, scratch, row * width, width);
+        }
+        for (int i = 0; i < layers.size(); i++) {
+            final TrailLayer layer = layers.get(i);
+            batch.clear();
+            final ArgbBuffer crop = layer.getCrop();
+            batch.addTrail(layer.getLeft() - left, layer.getTop() - top, crop.getWidth(), crop.getHeight(),
+                    layer.getTrail(), copies, width, height);
+            QuadBatchRasterizer.draw(region, crop, batch, 0, height);
+        }
+        return region;
+    }
+}
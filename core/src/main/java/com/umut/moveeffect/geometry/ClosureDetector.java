@@ -0,0 +1,41 @@
+package com.umut.moveeffect.geometry;
+
+/**
+ * Decides when a freehand lasso stroke should be closed back to its first point. A stroke closes
+ * when it approaches the start within the snap distance while enclosing enough area, or once it
+ * is long enough and comes back next to the start.
+ */
+public final class ClosureDetector {
+
+    private final float snapDistance;
+    private final float minSnapArea;
+    private final float deviation;
+    private final int minPointCount;
+
+    public ClosureDetector(float snapDistance, float minSnapArea, float deviation, int minPointCount) {
+        this.snapDistance = snapDistance;
+        this.minSnapArea = minSnapArea;
+        this.deviation = deviation;
+        this.minPointCount = minPointCount;
+    }
+
+    /**
+     * @param polygon    stroke so far, its first point is the lasso start
+     * @param pointCount number of samples the stroke received
+     */
+    public boolean isClosing(Polygon polygon, float lastX, float lastY, float x, float y, int pointCount) {
+        if (polygon.isEmpty()) {
+            return false;
+        }
+        final float startX = polygon.getX(0);
+        final float startY = polygon.getY(0);
+        final float lastDistanceToStart = GeometryUtils.distanceSquared(startX, startY, lastX, lastY);
+        final float currentDistanceToStart = GeometryUtils.distanceSquared(startX, startY, x, y);
+        if (currentDistanceToStart < lastDistanceToStart
+                && currentDistanceToStart <= snapDistance * snapDistance
+                && polygon.getAreaClosedWith(x, y) > minSnapArea) {
+            return true;
+        }
+        return pointCount > minPointCount && GeometryUtils.isNear(startX, startY, x, y, deviation);
+    }
+}
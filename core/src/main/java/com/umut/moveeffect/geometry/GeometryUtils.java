@@ -0,0 +1,26 @@
+package com.umut.moveeffect.geometry;
+
+public final class GeometryUtils {
+
+    private GeometryUtils() {
+    }
+
+    public static float distance(float fromX, float fromY, float toX, float toY) {
+        return (float) Math.sqrt(distanceSquared(fromX, fromY, toX, toY));
+    }
+
+    public static float distanceSquared(float fromX, float fromY, float toX, float toY) {
+        final float dx = fromX - toX;
+        final float dy = fromY - toY;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @return true when {@code test} lies strictly inside the square of half size {@code deviation}
+     * around {@code to}
+     */
+    public static boolean isNear(float toX, float toY, float testX, float testY, float deviation) {
+        return toX - deviation < testX && toX + deviation > testX
+                && toY - deviation < testY && toY + deviation > testY;
+    }
+}
@@ -0,0 +1,215 @@
+package com.umut.moveeffect.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Selection outline kept as flat primitive coordinate arrays so it can be queried without
+ * rasterizing a {@code Path}. The polygon is implicitly closed from the last point back to the first.
+ * Does not depend on the Android framework.
+ */
+public final class Polygon {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int QUAD_SEGMENTS = 4;
+
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private float[] ys = new float[INITIAL_CAPACITY];
+    private int size;
+    // twice the signed shoelace sum of the open chain, closing edge excluded
+    private double openArea;
+
+    private float minX;
+    private float minY;
+    private float maxX;
+    private float maxY;
+
+    public void reset() {
+        size = 0;
+        openArea = 0;
+    }
+
+    public void moveTo(float x, float y) {
+        reset();
+        append(x, y);
+    }
+
+    public void lineTo(float x, float y) {
+        append(x, y);
+    }
+
+    /**
+     * Flattens a quadratic curve from the current point into a fixed number of line segments.
+     */
+    public void quadTo(float cx, float cy, float x, float y) {
+        if (size == 0) {
+            append(x, y);
+            return;
+        }
+        final float sx = xs[size - 1];
+        final float sy = ys[size - 1];
+        for (int i = 1; i <= QUAD_SEGMENTS; i++) {
+            final float t = (float) i / QUAD_SEGMENTS;
+            final float u = 1 - t;
+            append(u * u * sx + 2 * u * t * cx + t * t * x,
+                    u * u * sy + 2 * u * t * cy + t * t * y);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Exact area of the closed polygon, maintained incrementally as points are appended.
+     */
+    public float getArea() {
+        if (size < 3) {
+            return 0f;
+        }
+        return (float) Math.abs((openArea + cross(xs[size - 1], ys[size - 1], xs[0], ys[0])) / 2);
+    }
+
+    /**
+     * Area the polygon would have if {@code (x, y)} were appended and the outline closed, in O(1).
+     */
+    public float getAreaClosedWith(float x, float y) {
+        if (size < 2) {
+            return 0f;
+        }
+        final double area = openArea + cross(xs[size - 1], ys[size - 1], x, y) + cross(x, y, xs[0], ys[0]);
+        return (float) Math.abs(area / 2);
+    }
+
+    /**
+     * Area of the loop that starts at {@code (x, y)}, runs through the points from {@code from} to the
+     * last one and closes back to {@code (x, y)}.
+     */
+    public float getLoopArea(int from, float x, float y) {
+        double area = cross(x, y, xs[from], ys[from]);
+        for (int i = from + 1; i < size; i++) {
+            area += cross(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+        }
+        area += cross(xs[size - 1], ys[size - 1], x, y);
+        return (float) Math.abs(area / 2);
+    }
+
+    /**
+     * Drops the points before {@code from} and starts the outline at {@code (x, y)} instead, keeping
+     * only the loop measured by {@link #getLoopArea(int, float, float)}.
+     *
+     * @param from at least 1
+     */
+    public void retainLoop(int from, float x, float y) {
+        final int count = size - from;
+        System.arraycopy(xs, from, xs, 1, count);
+        System.arraycopy(ys, from, ys, 1, count);
+        xs[0] = x;
+        ys[0] = y;
+        reset();
+        for (int i = 0; i <= count; i++) {
+            append(xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * Even-odd containment test. Rejects points outside of the bounding box before walking the edges.
+     */
+    public boolean contains(float x, float y) {
+        if (size < 3 || x < minX || x > maxX || y < minY || y > maxY) {
+            return false;
+        }
+        boolean inside = false;
+        float px = xs[size - 1];
+        float py = ys[size - 1];
+        for (int i = 0; i < size; i++) {
+            final float cx = xs[i];
+            final float cy = ys[i];
+            if ((cy > y) != (py > y) && x < (px - cx) * (y - cy) / (py - cy) + cx) {
+                inside = !inside;
+            }
+            px = cx;
+            py = cy;
+        }
+        return inside;
+    }
+
+    /**
+     * Collects the x coordinates where the horizontal line at {@code y} crosses the outline, in edge
+     * order. Filling between sorted pairs of crossings gives the even-odd interior.
+     *
+     * @param out receives the crossings, must hold at least {@link #size()} values
+     * @return number of crossings written
+     */
+    public int getCrossings(float y, float[] out) {
+        if (size < 3 || y < minY || y > maxY) {
+            return 0;
+        }
+        int count = 0;
+        float px = xs[size - 1];
+        float py = ys[size - 1];
+        for (int i = 0; i < size; i++) {
+            final float cx = xs[i];
+            final float cy = ys[i];
+            if ((cy > y) != (py > y)) {
+                out[count++] = (px - cx) * (y - cy) / (py - cy) + cx;
+            }
+            px = cx;
+            py = cy;
+        }
+        return count;
+    }
+
+    private void append(float x, float y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        if (size > 0) {
+            openArea += cross(xs[size - 1], ys[size - 1], x, y);
+        }
+        if (size == 0) {
+            minX = maxX = x;
+            minY = maxY = y;
+        } else {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        size++;
+    }
+
+    private static double cross(float x1, float y1, float x2, float y2) {
+        return (double) x1 * y2 - (double) x2 * y1;
+    }
+}
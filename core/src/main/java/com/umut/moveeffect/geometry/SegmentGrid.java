@@ -0,0 +1,197 @@
+package com.umut.moveeffect.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid hashing the segments of a growing {@link Polygon} chain by the cells their bounding
+ * boxes cover, so a new segment is only tested against the segments near it. Segment {@code i} runs
+ * from point {@code i} to point {@code i + 1}; the closing edge is never indexed. Segments are
+ * indexed lazily by {@link #update(Polygon)} as the chain grows.
+ */
+public final class SegmentGrid {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final float EPSILON = 1e-6f;
+
+    private final float cellSize;
+
+    // open addressing table from cell key to the first entry of the cell, -1 marks a free slot
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] heads = new int[INITIAL_CAPACITY];
+    private int cellCount;
+
+    // entries chained per cell, newest first
+    private int[] entrySegments = new int[INITIAL_CAPACITY];
+    private int[] entryNext = new int[INITIAL_CAPACITY];
+    private int entryCount;
+
+    private int indexedCount;
+
+    public SegmentGrid(float cellSize) {
+        this.cellSize = cellSize;
+        Arrays.fill(heads, -1);
+    }
+
+    public void reset() {
+        Arrays.fill(heads, -1);
+        cellCount = 0;
+        entryCount = 0;
+        indexedCount = 0;
+    }
+
+    /**
+     * Indexes the segments appended to {@code polygon} since the last call. Starts over when the
+     * polygon got shorter in the meantime.
+     */
+    public void update(Polygon polygon) {
+        final int segmentCount = Math.max(polygon.size() - 1, 0);
+        if (segmentCount < indexedCount) {
+            reset();
+        }
+        for (int i = indexedCount; i < segmentCount; i++) {
+            insert(i, polygon.getX(i), polygon.getY(i), polygon.getX(i + 1), polygon.getY(i + 1));
+        }
+        indexedCount = segmentCount;
+    }
+
+    /**
+     * Finds where the segment from the last point of {@code polygon} to {@code (x, y)} first crosses
+     * an indexed segment. The segment ending at the start point is skipped, so {@link #update(Polygon)}
+     * has to run first for the crossings with the latest segments to be found.
+     *
+     * @param out receives the crossing point at {@code [0]} and {@code [1]}
+     * @return index of the crossed segment, or -1 when there is no crossing
+     */
+    public int findCrossing(Polygon polygon, float x, float y, float[] out) {
+        if (polygon.size() < 3) {
+            return -1;
+        }
+        final float startX = polygon.getX(polygon.size() - 1);
+        final float startY = polygon.getY(polygon.size() - 1);
+        final int adjacent = polygon.size() - 2;
+        final int fromColumn = cellOf(Math.min(startX, x));
+        final int toColumn = cellOf(Math.max(startX, x));
+        final int fromRow = cellOf(Math.min(startY, y));
+        final int toRow = cellOf(Math.max(startY, y));
+        final float rx = x - startX;
+        final float ry = y - startY;
+
+        int crossed = -1;
+        float nearest = Float.MAX_VALUE;
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                final int slot = find(keyOf(column, row));
+                if (slot < 0) {
+                    continue;
+                }
+                for (int entry = heads[slot]; entry >= 0; entry = entryNext[entry]) {
+                    final int segment = entrySegments[entry];
+                    if (segment >= adjacent) {
+                        continue;
+                    }
+                    final float cx = polygon.getX(segment);
+                    final float cy = polygon.getY(segment);
+                    final float sx = polygon.getX(segment + 1) - cx;
+                    final float sy = polygon.getY(segment + 1) - cy;
+                    final float denominator = rx * sy - ry * sx;
+                    if (Math.abs(denominator) < EPSILON) {
+                        continue;
+                    }
+                    final float qx = cx - startX;
+                    final float qy = cy - startY;
+                    final float t = (qx * sy - qy * sx) / denominator;
+                    final float u = (qx * ry - qy * rx) / denominator;
+                    if (t > 0f && t <= 1f && u >= 0f && u <= 1f && t < nearest) {
+                        nearest = t;
+                        crossed = segment;
+                    }
+                }
+            }
+        }
+        if (crossed >= 0) {
+            out[0] = startX + rx * nearest;
+            out[1] = startY + ry * nearest;
+        }
+        return crossed;
+    }
+
+    private void insert(int segment, float x1, float y1, float x2, float y2) {
+        final int fromColumn = cellOf(Math.min(x1, x2));
+        final int toColumn = cellOf(Math.max(x1, x2));
+        final int fromRow = cellOf(Math.min(y1, y2));
+        final int toRow = cellOf(Math.max(y1, y2));
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                final long key = keyOf(column, row);
+                int slot = find(key);
+                if (slot < 0) {
+                    slot = addCell(key);
+                }
+                if (entryCount == entrySegments.length) {
+                    entrySegments = Arrays.copyOf(entrySegments, entryCount * 2);
+                    entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+                }
+                entrySegments[entryCount] = segment;
+                entryNext[entryCount] = heads[slot];
+                heads[slot] = entryCount++;
+            }
+        }
+    }
+
+    private int find(long key) {
+        final int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; heads[slot] >= 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int addCell(long key) {
+        if (2 * (cellCount + 1) > keys.length) {
+            grow();
+        }
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (heads[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        // the slot stays marked free until insert links the first entry of the cell into it
+        keys[slot] = key;
+        cellCount++;
+        return slot;
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldHeads = heads;
+        keys = new long[oldKeys.length * 2];
+        heads = new int[oldHeads.length * 2];
+        Arrays.fill(heads, -1);
+        final int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] >= 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (heads[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    private int cellOf(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long keyOf(int column, int row) {
+        return ((long) column << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32);
+    }
+}
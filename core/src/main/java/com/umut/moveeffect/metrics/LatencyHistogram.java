@@ -0,0 +1,120 @@
+package com.umut.moveeffect.metrics;
+
+import java.util.Locale;
+
+/**
+ * Fixed size log-linear histogram of durations in nanoseconds, laid out like HdrHistogram with 64
+ * sub-buckets per power of two, so every recorded value is kept within 1/64 of its magnitude.
+ * Values up to {@link #MAX_VALUE} are tracked, larger ones count as {@link #MAX_VALUE}. Recording
+ * never allocates.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Largest distinguishable value, a little over 68 seconds.
+     */
+    public static final long MAX_VALUE = (1L << 36) - 1;
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+    private final String name;
+    private final int[] counts = new int[BUCKET_COUNT];
+    private long totalCount;
+    private long totalValue;
+    private long minValue = Long.MAX_VALUE;
+    private long maxValue;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized void record(long nanos) {
+        final long value = Math.min(Math.max(nanos, 0L), MAX_VALUE);
+        counts[indexOf(value)]++;
+        totalCount++;
+        totalValue += value;
+        minValue = Math.min(minValue, value);
+        maxValue = Math.max(maxValue, value);
+    }
+
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    public synchronized long getMinValue() {
+        return totalCount != 0 ? minValue : 0L;
+    }
+
+    public synchronized long getMaxValue() {
+        return maxValue;
+    }
+
+    public synchronized double getMean() {
+        return totalCount != 0 ? (double) totalValue / totalCount : 0d;
+    }
+
+    /**
+     * @param percentile in [0, 100]
+     * @return the largest value equivalent to the one at {@code percentile}, 0 when nothing was
+     * recorded
+     */
+    public synchronized long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0L;
+        }
+        final double clamped = Math.min(Math.max(percentile, 0d), 100d);
+        final long target = Math.max(1L, (long) Math.ceil(clamped / 100d * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        totalValue = 0;
+        minValue = Long.MAX_VALUE;
+        maxValue = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "%s[count=%d,mean=%.1fus,p50=%.1fus,p90=%.1fus,p99=%.1fus,max=%.1fus]",
+                name, totalCount, getMean() / 1000d, getValueAtPercentile(50) / 1000d,
+                getValueAtPercentile(90) / 1000d, getValueAtPercentile(99) / 1000d, maxValue / 1000d);
+    }
+
+    /**
+     * Values below {@code 2 * SUB_BUCKET_COUNT} get a bucket each, every following power of two is
+     * split into {@code SUB_BUCKET_COUNT} buckets.
+     */
+    private static int indexOf(long value) {
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (shift <= 0) {
+            return (int) value;
+        }
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        final long lowest = (long) (index - shift * SUB_BUCKET_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,109 @@
+package com.umut.moveeffect.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide latency histograms and counters of the edit pipeline. Disabled by default, in which
+ * case timing a section costs one volatile read and nothing is recorded:
+ * <pre>
+ * final long start = Metrics.start();
+ * ...
+ * Metrics.stop(Metrics.CROP, start);
+ * </pre>
+ */
+public final class Metrics {
+
+    public static final LatencyHistogram DRAW = new LatencyHistogram("draw");
+    public static final LatencyHistogram CROP = new LatencyHistogram("crop");
+    public static final LatencyHistogram HIT_TEST = new LatencyHistogram("hitTest");
+    public static final LatencyHistogram DECODE = new LatencyHistogram("decode");
+    public static final LatencyHistogram SAVE = new LatencyHistogram("save");
+    public static final LatencyHistogram SAVE_ANIMATION = new LatencyHistogram("saveAnimation");
+    public static final LatencyHistogram SAVE_FULL_RESOLUTION = new LatencyHistogram("saveFullResolution");
+
+    private static final List<LatencyHistogram> HISTOGRAMS = Collections.unmodifiableList(
+            Arrays.asList(DRAW, CROP, HIT_TEST, DECODE, SAVE, SAVE_ANIMATION, SAVE_FULL_RESOLUTION));
+    private static final AtomicLong TOUCH_EVENTS = new AtomicLong();
+    private static final AtomicLong BITMAP_BYTES = new AtomicLong();
+
+    private static volatile boolean enabled;
+    private static volatile MetricsReporter reporter;
+
+    private Metrics() {
+
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setReporter(MetricsReporter reporter) {
+        Metrics.reporter = reporter;
+    }
+
+    /**
+     * @return start time to hand to {@link #stop(LatencyHistogram, long)}, 0 when disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time passed since {@code start} into {@code histogram}, unless the section was
+     * started while disabled.
+     */
+    public static void stop(LatencyHistogram histogram, long start) {
+        if (start != 0L) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    public static void countTouchEvent() {
+        if (enabled) {
+            TOUCH_EVENTS.incrementAndGet();
+        }
+    }
+
+    public static void countBitmapBytes(long byteCount) {
+        if (enabled) {
+            BITMAP_BYTES.addAndGet(byteCount);
+        }
+    }
+
+    public static List<LatencyHistogram> getHistograms() {
+        return HISTOGRAMS;
+    }
+
+    public static long getTouchEventCount() {
+        return TOUCH_EVENTS.get();
+    }
+
+    public static long getAllocatedBitmapBytes() {
+        return BITMAP_BYTES.get();
+    }
+
+    /**
+     * Hands everything collected so far to the reporter, if enabled and one is set.
+     */
+    public static void report() {
+        final MetricsReporter current = reporter;
+        if (enabled && current != null) {
+            current.report(HISTOGRAMS, TOUCH_EVENTS.get(), BITMAP_BYTES.get());
+        }
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        TOUCH_EVENTS.set(0);
+        BITMAP_BYTES.set(0);
+    }
+}
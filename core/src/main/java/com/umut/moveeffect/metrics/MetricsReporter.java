@@ -0,0 +1,12 @@
+package com.umut.moveeffect.metrics;
+
+import java.util.List;
+
+/**
+ * Receives the collected metrics on {@link Metrics#report()}. Called on the reporting thread while
+ * recording may go on, so every value read is only consistent with itself.
+ */
+public interface MetricsReporter {
+
+    void report(List<LatencyHistogram> histograms, long touchEventCount, long allocatedBitmapBytes);
+}
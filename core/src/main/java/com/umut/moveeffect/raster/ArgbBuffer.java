@@ -0,0 +1,51 @@
+package com.umut.moveeffect.raster;
+
+import java.util.Arrays;
+
+/**
+ * Framework independent image: premultiplied ARGB_8888 pixels in row-major order, the layout
+ * Android keeps behind a {@code Bitmap}.
+ */
+public final class ArgbBuffer {
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    public ArgbBuffer(int width, int height) {
+        this(width, height, new int[width * height]);
+    }
+
+    public ArgbBuffer(int width, int height, int[] pixels) {
+        if (width <= 0 || height <= 0 || pixels.length < width * height) {
+            throw new IllegalArgumentException("Invalid buffer " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getPixel(int x, int y) {
+        return pixels[y * width + x];
+    }
+
+    public void clear() {
+        Arrays.fill(pixels, 0, width * height, 0);
+    }
+
+    public ArgbBuffer copy() {
+        return new ArgbBuffer(width, height, Arrays.copyOf(pixels, width * height));
+    }
+}
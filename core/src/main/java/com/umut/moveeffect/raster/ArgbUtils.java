@@ -0,0 +1,64 @@
+package com.umut.moveeffect.raster;
+
+public final class ArgbUtils {
+
+    private ArgbUtils() {
+    }
+
+    /**
+     * Exactly rounded {@code a * b / 255} for values in [0, 255].
+     */
+    public static int mul255(int a, int b) {
+        final int t = a * b + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+
+    /**
+     * Scales all four channels of a premultiplied pixel by {@code alpha} / 255.
+     */
+    public static int scale(int color, int alpha) {
+        if (alpha >= 255) {
+            return color;
+        }
+        if (alpha <= 0) {
+            return 0;
+        }
+        return mul255(color >>> 24, alpha) << 24
+                | mul255((color >> 16) & 0xFF, alpha) << 16
+                | mul255((color >> 8) & 0xFF, alpha) << 8
+                | mul255(color & 0xFF, alpha);
+    }
+
+    /**
+     * Premultiplied SRC_OVER of {@code src} onto {@code dst}.
+     */
+    public static int srcOver(int src, int dst) {
+        final int srcAlpha = src >>> 24;
+        if (srcAlpha == 255) {
+            return src;
+        }
+        if (srcAlpha == 0) {
+            return dst;
+        }
+        final int inverse = 255 - srcAlpha;
+        return (srcAlpha + mul255(dst >>> 24, inverse)) << 24
+                | (((src >> 16) & 0xFF) + mul255((dst >> 16) & 0xFF, inverse)) << 16
+                | (((src >> 8) & 0xFF) + mul255((dst >> 8) & 0xFF, inverse)) << 8
+                | ((src & 0xFF) + mul255(dst & 0xFF, inverse));
+    }
+
+    public static int premultiply(int color) {
+        return scale(color | 0xFF000000, color >>> 24);
+    }
+
+    public static int unpremultiply(int color) {
+        final int alpha = color >>> 24;
+        if (alpha == 255 || alpha == 0) {
+            return color;
+        }
+        final int r = Math.min(255, (((color >> 16) & 0xFF) * 255 + alpha / 2) / alpha);
+        final int g = Math.min(255, (((color >> 8) & 0xFF) * 255 + alpha / 2) / alpha);
+        final int b = Math.min(255, ((color & 0xFF) * 255 + alpha / 2) / alpha);
+        return alpha << 24 | r << 16 | g << 8 | b;
+    }
+}
@@ -0,0 +1,63 @@
+package com.umut.moveeffect.raster;
+
+import com.umut.moveeffect.geometry.Polygon;
+import com.umut.moveeffect.recipe.EffectRecipe;
+
+/**
+ * Renders the move effect without a view: the selection is lifted out of the source with the same
+ * feathered edge {@code BitmapUtils.getCroppedBitmap} gives it, its trail is composited towards the
+ * drag vector and the untouched selection is drawn on top.
+ */
+public final class EffectRenderer {
+
+    private EffectRenderer() {
+    }
+
+    /**
+     * Replays {@code recipe} on {@code source}, scaling it when the source size differs from the one
+     * the recipe was recorded on. The feathered edge scales along, so it keeps its width relative to
+     * the selection.
+     */
+    public static ArgbBuffer render(ArgbBuffer source, EffectRecipe recipe) {
+        final EffectRecipe scaled = recipe.scaledTo(source.getWidth(), source.getHeight());
+        final Polygon polygon = new Polygon();
+        scaled.fillPolygon(polygon);
+        final float scale = Math.max((float) source.getWidth() / recipe.getSourceWidth(),
+                (float) source.getHeight() / recipe.getSourceHeight());
+        return render(source, polygon, scaled.getDragX() - scaled.getGrabX(), scaled.getDragY() - scaled.getGrabY(),
+                scaled.getRepCount(), scaled.getAlpha(), Math.round(MaskFeather.DEFAULT_RADIUS * scale));
+    }
+
+    /**
+     * {@link #render(ArgbBuffer, Polygon, float, float, int, int, int)} with the edge feathered by
+     * {@link MaskFeather#DEFAULT_RADIUS}.
+     */
+    public static ArgbBuffer render(ArgbBuffer source, Polygon polygon, float dragX, float dragY,
+                                    int repCount, int alpha) {
+        return render(source, polygon, dragX, dragY, repCount, alpha, MaskFeather.DEFAULT_RADIUS);
+    }
+
+    /**
+     * @param dragX         horizontal distance the selection was dragged
+     * @param dragY         vertical distance the selection was dragged
+     * @param repCount      number of trail copies
+     * @param alpha         trail copy alpha in [0, 255]
+     * @param featherRadius radius of the selection's feathered edge, 0 for a hard edge
+     * @return a new buffer holding the source with the effect applied
+     */
+    public static ArgbBuffer render(ArgbBuffer source, Polygon polygon, float dragX, float dragY,
+                                    int repCount, int alpha, int featherRadius) {
+        final ArgbBuffer output = source.copy();
+        final ArgbBuffer cropped = PolygonCropper.crop(source, polygon, featherRadius);
+        if (cropped == null || repCount <= 0 || (dragX == 0 && dragY == 0)) {
+            return output;
+        }
+        final int padding = MaskFeather.getPadding(featherRadius);
+        final int left = (int) polygon.getMinX() - padding;
+        final int top = (int) polygon.getMinY() - padding;
+        TrailCompositor.drawCopies(output, cropped, left, top, dragX / repCount, dragY / repCount,
+                repCount, alpha, 0, output.getHeight());
+        TrailCompositor.blit(output, cropped, left, top, 255, 0, output.getHeight());
+        return output;
+    }
+}
@@ -0,0 +1,147 @@
+package com.umut.moveeffect.raster;
+
+import com.umut.moveeffect.geometry.Polygon;
+
+import java.util.Arrays;
+
+/**
+ * Software counterpart of {@code BitmapUtils.getCroppedBitmap}: lifts the area inside a polygon out
+ * of an image into a buffer the size of the polygon's bounding rect. Edges are anti-aliased with
+ * vertical supersampling and exact horizontal span coverage.
+ */
+public final class PolygonCropper {
+
+    private static final int SUBSAMPLES = 4;
+
+    private PolygonCropper() {
+    }
+
+    /**
+     * @return cropped buffer whose origin is at ({@code (int) minX}, {@code (int) minY}) of the polygon,
+     * or null when the polygon encloses no pixels
+     */
+    public static ArgbBuffer crop(ArgbBuffer src, Polygon polygon) {
+        final int left = (int) polygon.getMinX();
+        final int top = (int) polygon.getMinY();
+        final int width = (int) polygon.getMaxX() - left;
+        final int height = (int) polygon.getMaxY() - top;
+        if (polygon.size() < 3 || width <= 0 || height <= 0) {
+            return null;
+        }
+        final ArgbBuffer output = new ArgbBuffer(width, height);
+        final int[] srcPixels = src.getPixels();
+        final int[] outPixels = output.getPixels();
+        final float[] coverage = new float[width];
+        final float[] crossings = new float[polygon.size()];
+        for (int row = 0; row < height; row++) {
+            final int srcY = top + row;
+            if (srcY < 0 || srcY >= src.getHeight()) {
+                continue;
+            }
+            computeCoverage(polygon, srcY, left, coverage, crossings);
+            final int srcRow = srcY * src.getWidth();
+            final int outRow = row * width;
+            for (int x = 0; x < width; x++) {
+                final int srcX = left + x;
+                if (coverage[x] <= 0f || srcX < 0 || srcX >= src.getWidth()) {
+                    continue;
+                }
+                outPixels[outRow + x] = ArgbUtils.scale(srcPixels[srcRow + srcX],
+                        Math.min(255, (int) (coverage[x] * 255 + 0.5f)));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Like {@link #crop(ArgbBuffer, Polygon)} with the edge feathered by {@link MaskFeather}. The
+     * coverage is rasterized into an 8-bit mask over the bounding rect grown by
+     * {@link MaskFeather#getPadding(int)}, blurred, and applied to the source in a single pass.
+     *
+     * @return cropped buffer whose origin is {@code MaskFeather.getPadding(featherRadius)} above and
+     * left of ({@code (int) minX}, {@code (int) minY}), or null when the polygon encloses no pixels
+     */
+    public static ArgbBuffer crop(ArgbBuffer src, Polygon polygon, int featherRadius) {
+        if (featherRadius <= 0) {
+            return crop(src, polygon);
+        }
+        final int padding = MaskFeather.getPadding(featherRadius);
+        final int innerWidth = (int) polygon.getMaxX() - (int) polygon.getMinX();
+        final int innerHeight = (int) polygon.getMaxY() - (int) polygon.getMinY();
+        if (polygon.size() < 3 || innerWidth <= 0 || innerHeight <= 0) {
+            return null;
+        }
+        final int left = (int) polygon.getMinX() - padding;
+        final int top = (int) polygon.getMinY() - padding;
+        final int width = innerWidth + 2 * padding;
+        final int height = innerHeight + 2 * padding;
+        final byte[] mask = new byte[width * height];
+        final float[] coverage = new float[width];
+        final float[] crossings = new float[polygon.size()];
+        for (int row = padding; row < padding + innerHeight; row++) {
+            computeCoverage(polygon, top + row, left, coverage, crossings);
+            final int maskRow = row * width;
+            for (int x = 0; x < width; x++) {
+                mask[maskRow + x] = (byte) Math.min(255, (int) (coverage[x] * 255 + 0.5f));
+            }
+        }
+        MaskFeather.blur(mask, width, height, width, featherRadius);
+
+        final ArgbBuffer output = new ArgbBuffer(width, height);
+        final int[] srcPixels = src.getPixels();
+        final int[] outPixels = output.getPixels();
+        final int fromRow = Math.max(0, -top);
+        final int toRow = Math.min(height, src.getHeight() - top);
+        final int fromColumn = Math.max(0, -left);
+        final int toColumn = Math.min(width, src.getWidth() - left);
+        for (int row = fromRow; row < toRow; row++) {
+            final int srcRow = (top + row) * src.getWidth() + left;
+            final int outRow = row * width;
+            for (int x = fromColumn; x < toColumn; x++) {
+                final int alpha = mask[outRow + x] & 0xFF;
+                if (alpha != 0) {
+                    outPixels[outRow + x] = ArgbUtils.scale(srcPixels[srcRow + x], alpha);
+                }
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Fills {@code coverage} with the fraction of each pixel in row {@code y} that lies inside the
+     * polygon, starting at column {@code left}.
+     */
+    public static void computeCoverage(Polygon polygon, int y, int left, float[] coverage, float[] crossings) {
+        Arrays.fill(coverage, 0f);
+        final float weight = 1f / SUBSAMPLES;
+        for (int s = 0; s < SUBSAMPLES; s++) {
+            final int count = polygon.getCrossings(y + (s + 0.5f) * weight, crossings);
+            Arrays.sort(crossings, 0, count);
+            for (int i = 0; i + 1 < count; i += 2) {
+                accumulateSpan(coverage, crossings[i] - left, crossings[i + 1] - left, weight);
+            }
+        }
+    }
+
+    private static void accumulateSpan(float[] coverage, float from, float to, float weight) {
+        final int width = coverage.length;
+        from = Math.max(0f, from);
+        to = Math.min(width, to);
+        if (from >= to) {
+            return;
+        }
+        final int first = (int) from;
+        final int last = (int) to;
+        if (first == last) {
+            coverage[first] += (to - from) * weight;
+            return;
+        }
+        coverage[first] += (first + 1 - from) * weight;
+        for (int i = first + 1; i < last; i++) {
+            coverage[i] += weight;
+        }
+        if (last < width) {
+            coverage[last] += (to - last) * weight;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.umut.moveeffect.raster;
+
+import com.umut.moveeffect.render.QuadBatch;
+
+/**
+ * Software stand-in for the GPU draw of a {@link QuadBatch}: quads are composited in batch order
+ * with premultiplied SRC_OVER, which is what the GL renderer configures with
+ * {@code glBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA)}. Quads of the texture's size go through
+ * {@link TrailCompositor#blit}, scaled ones take the texel under each pixel center, like the
+ * renderer's {@code GL_NEAREST} texture and the unfiltered Canvas paint.
+ */
+public final class QuadBatchRasterizer {
+
+    private QuadBatchRasterizer() {
+    }
+
+    public static void draw(ArgbBuffer dst, ArgbBuffer texture, QuadBatch batch, int rowStart, int rowEnd) {
+        for (int i = 0; i < batch.getQuadCount(); i++) {
+            // rounding keeps a quad ending at or before rowStart, or starting at or after rowEnd, out
+            if (batch.getBottom(i) <= rowStart || batch.getTop(i) >= rowEnd) {
+                continue;
+            }
+            final int x = Math.round(batch.getLeft(i));
+            final int y = Math.round(batch.getTop(i));
+            final int width = Math.round(batch.getRight(i)) - x;
+            final int height = Math.round(batch.getBottom(i)) - y;
+            final int alpha = Math.round(batch.getAlpha(i) * 255);
+            if (width == texture.getWidth() && height == texture.getHeight()) {
+                TrailCompositor.blit(dst, texture, x, y, alpha, rowStart, rowEnd);
+            } else {
+                drawScaled(dst, texture, x, y, width, height, batch.getLeft(i), batch.getTop(i),
+                        batch.getRight(i) - batch.getLeft(i), batch.getBottom(i) - batch.getTop(i), alpha,
+                        rowStart, rowEnd);
+            }
+        }
+    }
+
+    /**
+     * Fills the pixels from ({@code x}, {@code y}) on, sampling the quad at ({@code quadLeft},
+     * {@code quadTop}) of {@code quadWidth} x {@code quadHeight} before rounding.
+     */
+    private static void drawScaled(ArgbBuffer dst, ArgbBuffer texture, int x, int y, int width, int height,
+                                   float quadLeft, float quadTop, float quadWidth, float quadHeight,
+                                   int alpha, int rowStart, int rowEnd) {
+        final int fromRow = Math.max(Math.max(y, rowStart), 0);
+        final int toRow = Math.min(Math.min(y + height, rowEnd), dst.getHeight());
+        final int fromColumn = Math.max(x, 0);
+        final int toColumn = Math.min(x + width, dst.getWidth());
+        if (fromRow >= toRow || fromColumn >= toColumn || alpha <= 0) {
+            return;
+        }
+        final int[] dstPixels = dst.getPixels();
+        final int dstWidth = dst.getWidth();
+        final float scaleX = texture.getWidth() / quadWidth;
+        final float scaleY = texture.getHeight() / quadHeight;
+        for (int row = fromRow; row < toRow; row++) {
+            final int srcY = clamp((int) Math.floor((row + 0.5f - quadTop) * scaleY), texture.getHeight() - 1);
+            int dstIndex = row * dstWidth + fromColumn;
+            for (int column = fromColumn; column < toColumn; column++, dstIndex++) {
+                final int color = texture.getPixel(
+                        clamp((int) Math.floor((column + 0.5f - quadLeft) * scaleX), texture.getWidth() - 1), srcY);
+                if (color != 0) {
+                    dstPixels[dstIndex] = ArgbUtils.srcOver(ArgbUtils.scale(color, alpha), dstPixels[dstIndex]);
+                }
+            }
+        }
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : value > max ? max : value;
+    }
+}
@@ -0,0 +1,132 @@
+package com.umut.moveeffect.raster;
+
+import com.umut.moveeffect.render.TrailTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Composites {@link TrailLayer}s onto a buffer on several threads. The destination is split into
+ * horizontal strips that workers take in turn; each strip draws every layer in z-order, so rows
+ * never share a writer and the result is the same for any number of threads. Copies are placed at
+ * the same float rects as the Canvas path and drawn by
+ * {@link TrailCompositor#drawRect(ArgbBuffer, ArgbBuffer, float, float, float, float, int, int, int)};
+ * copies that miss a strip are skipped before any pixel is read.
+ */
+public final class StripCompositor {
+
+    /**
+     * Rows per strip, small enough to balance uneven trails and large enough to keep the per strip
+     * cost of walking the batches low.
+     */
+    public static final int STRIP_HEIGHT = 32;
+
+    private final ExecutorService executor;
+    private final int threadCount;
+
+    /**
+     * @param threadCount threads drawing at once including the caller, the others come from
+     *                    {@code executor}
+     */
+    public StripCompositor(ExecutorService executor, int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Invalid thread count " + threadCount);
+        }
+        this.executor = executor;
+        this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Draws {@code layers} over {@code dst}, bottom-most first. Returns once every strip is done,
+     * also when the calling thread gets interrupted in the meantime.
+     */
+    public void composite(ArgbBuffer dst, List<TrailLayer> layers) {
+        final int layerCount = layers.size();
+        final int stripCount = (dst.getHeight() + STRIP_HEIGHT - 1) / STRIP_HEIGHT;
+        final int workerCount = Math.min(threadCount, stripCount);
+        final AtomicInteger nextStrip = new AtomicInteger();
+        final Runnable worker = () -> {
+            for (int strip = nextStrip.getAndIncrement(); strip < stripCount; strip = nextStrip.getAndIncrement()) {
+                final int rowStart = strip * STRIP_HEIGHT;
+                final int rowEnd = Math.min(rowStart + STRIP_HEIGHT, dst.getHeight());
+                for (int i = 0; i < layerCount; i++) {
+                    drawLayer(dst, layers.get(i), rowStart, rowEnd);
+                }
+            }
+        };
+        final List<Future<?>> futures = new ArrayList<>(workerCount - 1);
+        for (int i = 1; i < workerCount; i++) {
+            futures.add(executor.submit(worker));
+        }
+        try {
+            worker.run();
+        } finally {
+            // the buffer belongs to the caller again only once no worker writes to it
+            awaitAll(futures);
+        }
+    }
+
+    /**
+     * Draws the copies of {@code layer} and then the selection itself on top, like
+     * {@code Selection.draw} does through a Canvas.
+     */
+    private static void drawLayer(ArgbBuffer dst, TrailLayer layer, int rowStart, int rowEnd) {
+        final ArgbBuffer crop = layer.getCrop();
+        final TrailTable trail = layer.getTrail();
+        final float width = crop.getWidth();
+        final float height = crop.getHeight();
+        final float centerX = layer.getLeft() + width / 2;
+        final float centerY = layer.getTop() + height / 2;
+        for (int i = 0; i < trail.getCount(); i++) {
+            final float halfHeight = height * trail.getScale(i) / 2;
+            final float copyCenterY = centerY + trail.getOffsetY(i);
+            if (copyCenterY + halfHeight <= rowStart || copyCenterY - halfHeight >= rowEnd) {
+                continue;
+            }
+            final float halfWidth = width * trail.getScale(i) / 2;
+            final float copyCenterX = centerX + trail.getOffsetX(i);
+            TrailCompositor.drawRect(dst, crop, copyCenterX - halfWidth, copyCenterY - halfHeight,
+                    copyCenterX + halfWidth, copyCenterY + halfHeight, trail.getAlpha(i), rowStart, rowEnd);
+        }
+        TrailCompositor.drawRect(dst, crop, layer.getLeft(), layer.getTop(), layer.getLeft() + width,
+                layer.getTop() + height, 255, rowStart, rowEnd);
+    }
+
+    private static void awaitAll(List<Future<?>> futures) {
+        boolean interrupted = false;
+        Throwable failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            while (true) {
+                try {
+                    futures.get(i).get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+}
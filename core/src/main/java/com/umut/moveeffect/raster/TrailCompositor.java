@@ -0,0 +1,113 @@
+package com.umut.moveeffect.raster;
+
+/**
+ * Software counterpart of the trail loop in {@code EditableImageView.drawOverlays}. All drawing is
+ * restricted to a row range of the destination so callers can split the work into strips.
+ */
+public final class TrailCompositor {
+
+    private TrailCompositor() {
+    }
+
+    /**
+     * Draws {@code count} copies of {@code src} with SRC_OVER and the given alpha, the first one
+     * offset by one step from ({@code left}, {@code top}).
+     */
+    public static void drawCopies(ArgbBuffer dst, ArgbBuffer src, float left, float top,
+                                  float stepX, float stepY, int count, int alpha,
+                                  int rowStart, int rowEnd) {
+        float x = left;
+        float y = top;
+        for (int i = 0; i < count; i++) {
+            x += stepX;
+            y += stepY;
+            blit(dst, src, Math.round(x), Math.round(y), alpha, rowStart, rowEnd);
+        }
+    }
+
+    /**
+     * SRC_OVER blit of {@code src} at ({@code x}, {@code y}) clipped to the destination and the
+     * row range. Copies that miss the range are skipped without touching any pixel.
+     */
+    public static void blit(ArgbBuffer dst, ArgbBuffer src, int x, int y, int alpha,
+                            int rowStart, int rowEnd) {
+        final int fromRow = Math.max(Math.max(y, rowStart), 0);
+        final int toRow = Math.min(Math.min(y + src.getHeight(), rowEnd), dst.getHeight());
+        final int fromColumn = Math.max(x, 0);
+        final int toColumn = Math.min(x + src.getWidth(), dst.getWidth());
+        if (fromRow >= toRow || fromColumn >= toColumn || alpha <= 0) {
+            return;
+        }
+        final int[] dstPixels = dst.getPixels();
+        final int[] srcPixels = src.getPixels();
+        final int dstWidth = dst.getWidth();
+        final int srcWidth = src.getWidth();
+        for (int row = fromRow; row < toRow; row++) {
+            int dstIndex = row * dstWidth + fromColumn;
+            int srcIndex = (row - y) * srcWidth + fromColumn - x;
+            for (int column = fromColumn; column < toColumn; column++, dstIndex++, srcIndex++) {
+                final int color = srcPixels[srcIndex];
+                if (color != 0) {
+                    dstPixels[dstIndex] = ArgbUtils.srcOver(ArgbUtils.scale(color, alpha), dstPixels[dstIndex]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws {@code src} stretched over the rect from ({@code left}, {@code top}) to ({@code right},
+     * {@code bottom}) like {@code Canvas.drawBitmap} with an anti-aliased, unfiltered paint: every
+     * pixel takes the source pixel under its center, and pixels the rect covers only partly are
+     * weighed by the covered area. A rect on whole pixels at the source size matches
+     * {@link #blit(ArgbBuffer, ArgbBuffer, int, int, int, int, int)}. Clipped to the destination and
+     * the row range.
+     */
+    public static void drawRect(ArgbBuffer dst, ArgbBuffer src, float left, float top, float right, float bottom,
+                                int alpha, int rowStart, int rowEnd) {
+        final int fromRow = Math.max(Math.max((int) Math.floor(top), rowStart), 0);
+        final int toRow = Math.min(Math.min((int) Math.ceil(bottom), rowEnd), dst.getHeight());
+        final int fromColumn = Math.max((int) Math.floor(left), 0);
+        final int toColumn = Math.min((int) Math.ceil(right), dst.getWidth());
+        if (fromRow >= toRow || fromColumn >= toColumn || alpha <= 0 || right <= left || bottom <= top) {
+            return;
+        }
+        final int[] dstPixels = dst.getPixels();
+        final int[] srcPixels = src.getPixels();
+        final int dstWidth = dst.getWidth();
+        final int srcWidth = src.getWidth();
+        final int srcHeight = src.getHeight();
+        final float scaleX = srcWidth / (right - left);
+        final float scaleY = srcHeight / (bottom - top);
+        final float firstCoverage = Math.min(fromColumn + 1, right) - Math.max(fromColumn, left);
+        final float lastCoverage = Math.min(toColumn, right) - Math.max(toColumn - 1, left);
+        for (int row = fromRow; row < toRow; row++) {
+            final float rowCoverage = Math.min(row + 1, bottom) - Math.max(row, top);
+            final int rowAlpha = Math.round(alpha * rowCoverage);
+            final int srcRow = clamp((int) Math.floor((row + 0.5f - top) * scaleY), srcHeight - 1);
+            final int srcOffset = srcRow * srcWidth;
+            int dstIndex = row * dstWidth + fromColumn;
+            for (int column = fromColumn; column < toColumn; column++, dstIndex++) {
+                final int color = srcPixels[srcOffset + clamp((int) Math.floor((column + 0.5f - left) * scaleX),
+                        srcWidth - 1)];
+                if (color == 0) {
+                    continue;
+                }
+                final int pixelAlpha;
+                if (column == fromColumn) {
+                    pixelAlpha = Math.round(alpha * rowCoverage * firstCoverage);
+                } else if (column == toColumn - 1) {
+                    pixelAlpha = Math.round(alpha * rowCoverage * lastCoverage);
+                } else {
+                    pixelAlpha = rowAlpha;
+                }
+                if (pixelAlpha > 0) {
+                    dstPixels[dstIndex] = ArgbUtils.srcOver(ArgbUtils.scale(color, pixelAlpha), dstPixels[dstIndex]);
+                }
+            }
+        }
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : value > max ? max : value;
+    }
+}
@@ -0,0 +1,38 @@
+package com.umut.moveeffect.raster;
+
+import com.umut.moveeffect.render.TrailTable;
+
+/**
+ * A selection lifted to ({@code left}, {@code top}) with its trail, the unit the software
+ * compositors draw in z-order.
+ */
+public final class TrailLayer {
+
+    private final ArgbBuffer crop;
+    private final float left;
+    private final float top;
+    private final TrailTable trail;
+
+    public TrailLayer(ArgbBuffer crop, float left, float top, TrailTable trail) {
+        this.crop = crop;
+        this.left = left;
+        this.top = top;
+        this.trail = trail;
+    }
+
+    public ArgbBuffer getCrop() {
+        return crop;
+    }
+
+    public float getLeft() {
+        return left;
+    }
+
+    public float getTop() {
+        return top;
+    }
+
+    public TrailTable getTrail() {
+        return trail;
+    }
+}
@@ -0,0 +1,83 @@
+package com.umut.moveeffect.recipe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Linear undo/redo history of edit states. Every entry is a lightweight {@link EffectRecipe}, a null
+ * entry stands for "nothing selected". Recording after an undo drops the redo branch, and the
+ * oldest entries are dropped once the capacity is exceeded.
+ */
+public final class EditHistory {
+
+    private final int capacity;
+    private final List<EffectRecipe> entries = new ArrayList<>();
+    private int position;
+
+    public EditHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        reset(null);
+    }
+
+    /**
+     * Forgets every entry and starts over from {@code initial}, which may be null.
+     */
+    public void reset(EffectRecipe initial) {
+        entries.clear();
+        entries.add(initial);
+        position = 0;
+    }
+
+    /**
+     * @param recipe state after an edit, or null when the edit removed the selection
+     * @return false when the state equals the current one and nothing was recorded
+     */
+    public boolean record(EffectRecipe recipe) {
+        final EffectRecipe current = entries.get(position);
+        if (current == null ? recipe == null : current.equals(recipe)) {
+            return false;
+        }
+        entries.subList(position + 1, entries.size()).clear();
+        entries.add(recipe);
+        if (entries.size() > capacity) {
+            entries.remove(0);
+        }
+        position = entries.size() - 1;
+        return true;
+    }
+
+    public boolean canUndo() {
+        return position > 0;
+    }
+
+    public boolean canRedo() {
+        return position < entries.size() - 1;
+    }
+
+    /**
+     * @return the state to show after stepping back
+     */
+    public EffectRecipe undo() {
+        if (!canUndo()) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        return entries.get(--position);
+    }
+
+    /**
+     * @return the state to show after stepping forward
+     */
+    public EffectRecipe redo() {
+        if (!canRedo()) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        return entries.get(++position);
+    }
+
+    public EffectRecipe current() {
+        return entries.get(position);
+    }
+}
@@ -0,0 +1,180 @@
+package com.umut.moveeffect.recipe;
+
+import com.umut.moveeffect.geometry.Polygon;
+
+import java.util.Arrays;
+
+/**
+ * Everything needed to reproduce an edit on a source image: the closed selection outline, where it
+ * was grabbed and dragged to, and the trail parameters. Coordinates are in the pixel space of a
+ * source of {@link #getSourceWidth()} x {@link #getSourceHeight()}.
+ */
+public final class EffectRecipe {
+
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final float[] xs;
+    private final float[] ys;
+    private final float grabX;
+    private final float grabY;
+    private final float dragX;
+    private final float dragY;
+    private final int repCount;
+    private final int alpha;
+
+    public EffectRecipe(int sourceWidth, int sourceHeight, Polygon polygon, float grabX, float grabY,
+                        float dragX, float dragY, int repCount, int alpha) {
+        this(sourceWidth, sourceHeight, xsOf(polygon), ysOf(polygon), grabX, grabY, dragX, dragY, repCount, alpha);
+    }
+
+    EffectRecipe(int sourceWidth, int sourceHeight, float[] xs, float[] ys, float grabX, float grabY,
+                 float dragX, float dragY, int repCount, int alpha) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate count mismatch");
+        }
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.xs = xs;
+        this.ys = ys;
+        this.grabX = grabX;
+        this.grabY = grabY;
+        this.dragX = dragX;
+        this.dragY = dragY;
+        this.repCount = repCount;
+        this.alpha = alpha;
+    }
+
+    public int getSourceWidth() {
+        return sourceWidth;
+    }
+
+    public int getSourceHeight() {
+        return sourceHeight;
+    }
+
+    public int getPointCount() {
+        return xs.length;
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Point where the selection was grabbed.
+     */
+    public float getGrabX() {
+        return grabX;
+    }
+
+    public float getGrabY() {
+        return grabY;
+    }
+
+    /**
+     * Point the selection was dragged to.
+     */
+    public float getDragX() {
+        return dragX;
+    }
+
+    public float getDragY() {
+        return dragY;
+    }
+
+    public int getRepCount() {
+        return repCount;
+    }
+
+    public int getAlpha() {
+        return alpha;
+    }
+
+    public void fillPolygon(Polygon out) {
+        out.reset();
+        for (int i = 0; i < xs.length; i++) {
+            out.lineTo(xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * @return the same recipe mapped onto a source of another size
+     */
+    public EffectRecipe scaledTo(int width, int height) {
+        if (width == sourceWidth && height == sourceHeight) {
+            return this;
+        }
+        final float scaleX = (float) width / sourceWidth;
+        final float scaleY = (float) height / sourceHeight;
+        final float[] scaledXs = new float[xs.length];
+        final float[] scaledYs = new float[ys.length];
+        for (int i = 0; i < xs.length; i++) {
+            scaledXs[i] = xs[i] * scaleX;
+            scaledYs[i] = ys[i] * scaleY;
+        }
+        return new EffectRecipe(width, height, scaledXs, scaledYs, grabX * scaleX, grabY * scaleY,
+                dragX * scaleX, dragY * scaleY, repCount, alpha);
+    }
+
+    /**
+     * @return true when both recipes lift the same pixels, so an existing crop can be reused
+     */
+    public boolean hasSameSelection(EffectRecipe other) {
+        return sourceWidth == other.sourceWidth && sourceHeight == other.sourceHeight
+                && Arrays.equals(xs, other.xs) && Arrays.equals(ys, other.ys);
+    }
+
+    public int selectionHashCode() {
+        int result = 31 * sourceWidth + sourceHeight;
+        result = 31 * result + Arrays.hashCode(xs);
+        return 31 * result + Arrays.hashCode(ys);
+    }
+
+    public EffectRecipe withParameters(float grabX, float grabY, float dragX, float dragY, int repCount, int alpha) {
+        return new EffectRecipe(sourceWidth, sourceHeight, xs, ys, grabX, grabY, dragX, dragY, repCount, alpha);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EffectRecipe)) {
+            return false;
+        }
+        final EffectRecipe other = (EffectRecipe) o;
+        return hasSameSelection(other)
+                && Float.compare(grabX, other.grabX) == 0 && Float.compare(grabY, other.grabY) == 0
+                && Float.compare(dragX, other.dragX) == 0 && Float.compare(dragY, other.dragY) == 0
+                && repCount == other.repCount && alpha == other.alpha;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = selectionHashCode();
+        result = 31 * result + Float.floatToIntBits(dragX - grabX);
+        result = 31 * result + Float.floatToIntBits(dragY - grabY);
+        result = 31 * result + repCount;
+        return 31 * result + alpha;
+    }
+
+    private static float[] xsOf(Polygon polygon) {
+        final float[] values = new float[polygon.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = polygon.getX(i);
+        }
+        return values;
+    }
+
+    private static float[] ysOf(Polygon polygon) {
+        final float[] values = new float[polygon.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = polygon.getY(i);
+        }
+        return values;
+    }
+}
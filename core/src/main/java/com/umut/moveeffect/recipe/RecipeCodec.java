@@ -0,0 +1,161 @@
+package com.umut.moveeffect.recipe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Compact binary form of an {@link EffectRecipe}.
+ * <pre>
+ * magic 'M' 'E', version byte
+ * varint sourceWidth, varint sourceHeight, varint repCount, byte alpha
+ * zigzag varint grabX, grabY, dragX, dragY
+ * varint pointCount, then per point zigzag varint dx, dy from the previous point
+ * </pre>
+ * Coordinates are stored as fixed point with {@link #FRACTION_BITS} fractional bits, so decoding
+ * quantizes them to 1/16 of a pixel; encoding a decoded recipe reproduces the same bytes.
+ */
+public final class RecipeCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC_0 = 'M';
+    private static final int MAGIC_1 = 'E';
+    private static final int FRACTION_BITS = 4;
+    private static final float FIXED_ONE = 1 << FRACTION_BITS;
+
+    private RecipeCodec() {
+    }
+
+    public static byte[] encode(EffectRecipe recipe) {
+        final int pointCount = recipe.getPointCount();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(16 + pointCount * 3);
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(VERSION);
+        writeVarint(out, recipe.getSourceWidth());
+        writeVarint(out, recipe.getSourceHeight());
+        writeVarint(out, recipe.getRepCount());
+        out.write(recipe.getAlpha());
+        writeCoordinate(out, toFixed(recipe.getGrabX()));
+        writeCoordinate(out, toFixed(recipe.getGrabY()));
+        writeCoordinate(out, toFixed(recipe.getDragX()));
+        writeCoordinate(out, toFixed(recipe.getDragY()));
+        writeVarint(out, pointCount);
+        int previousX = 0;
+        int previousY = 0;
+        for (int i = 0; i < pointCount; i++) {
+            final int x = toFixed(recipe.getX(i));
+            final int y = toFixed(recipe.getY(i));
+            writeCoordinate(out, x - previousX);
+            writeCoordinate(out, y - previousY);
+            previousX = x;
+            previousY = y;
+        }
+        return out.toByteArray();
+    }
+
+    public static EffectRecipe decode(byte[] data) throws IOException {
+        final Reader reader = new Reader(data);
+        if (reader.readByte() != MAGIC_0 || reader.readByte() != MAGIC_1) {
+            throw new IOException("Not an effect recipe");
+        }
+        final int version = reader.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported recipe version " + version);
+        }
+        final int sourceWidth = reader.readVarint();
+        final int sourceHeight = reader.readVarint();
+        final int repCount = reader.readVarint();
+        // varints above Integer.MAX_VALUE read as negative and fail here as well; sizes end up as
+        // divisors when the recipe is replayed
+        if (sourceWidth <= 0 || sourceHeight <= 0) {
+            throw new IOException("Corrupt source size " + sourceWidth + "x" + sourceHeight);
+        }
+        if (repCount < 1) {
+            throw new IOException("Corrupt rep count " + repCount);
+        }
+        final int alpha = reader.readByte();
+        final float grabX = fromFixed(reader.readCoordinate());
+        final float grabY = fromFixed(reader.readCoordinate());
+        final float dragX = fromFixed(reader.readCoordinate());
+        final float dragY = fromFixed(reader.readCoordinate());
+        final int pointCount = reader.readVarint();
+        // every point takes at least two bytes
+        if (pointCount < 0 || pointCount > reader.remaining() / 2) {
+            throw new IOException("Corrupt point count " + pointCount);
+        }
+        final float[] xs = new float[pointCount];
+        final float[] ys = new float[pointCount];
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < pointCount; i++) {
+            x += reader.readCoordinate();
+            y += reader.readCoordinate();
+            xs[i] = fromFixed(x);
+            ys[i] = fromFixed(y);
+        }
+        return new EffectRecipe(sourceWidth, sourceHeight, xs, ys, grabX, grabY, dragX, dragY, repCount, alpha);
+    }
+
+    private static int toFixed(float value) {
+        return Math.round(value * FIXED_ONE);
+    }
+
+    private static float fromFixed(int value) {
+        return value / FIXED_ONE;
+    }
+
+    private static void writeCoordinate(ByteArrayOutputStream out, int value) {
+        writeVarint(out, (value << 1) ^ (value >> 31));
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("Truncated recipe");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        int remaining() {
+            return data.length - position;
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                final int b = readByte();
+                // the fifth byte only holds the top four bits
+                if (shift == 28 && (b & 0xF0) != 0) {
+                    throw new IOException("Malformed varint");
+                }
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        int readCoordinate() throws IOException {
+            final int value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
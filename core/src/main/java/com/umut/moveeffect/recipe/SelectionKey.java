@@ -0,0 +1,29 @@
+package com.umut.moveeffect.recipe;
+
+/**
+ * Identifies the pixels a recipe lifts out of its source, ignoring the trail parameters. Used to
+ * cache crops that can be derived again from a recipe.
+ */
+public final class SelectionKey {
+
+    private final EffectRecipe recipe;
+    private final int hashCode;
+
+    public SelectionKey(EffectRecipe recipe) {
+        this.recipe = recipe;
+        this.hashCode = recipe.selectionHashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof SelectionKey && recipe.hasSameSelection(((SelectionKey) o).recipe);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,120 @@
+package com.umut.moveeffect.render;
+
+/**
+ * Textured quads packed into one interleaved vertex array, so a whole trail goes to the GPU in a
+ * single draw call. Every quad is two triangles of {@link #FLOATS_PER_VERTEX} floats per vertex:
+ * position in pixels, texture coordinate and alpha in [0, 1].
+ */
+public final class QuadBatch {
+
+    public static final int FLOATS_PER_VERTEX = 5;
+    public static final int VERTICES_PER_QUAD = 6;
+    public static final int FLOATS_PER_QUAD = FLOATS_PER_VERTEX * VERTICES_PER_QUAD;
+
+    // the vertex holding the bottom right corner of a quad
+    private static final int BOTTOM_RIGHT_OFFSET = 5 * FLOATS_PER_VERTEX;
+    private static final int INITIAL_QUAD_CAPACITY = 32;
+
+    private float[] vertices = new float[INITIAL_QUAD_CAPACITY * FLOATS_PER_QUAD];
+    private int quadCount;
+
+    public void clear() {
+        quadCount = 0;
+    }
+
+    /**
+     * Adds the copies of {@code trail} for a {@code width} x {@code height} quad at ({@code left},
+     * {@code top}), followed by the quad itself at full alpha on top. Copies entirely outside of the
+     * {@code clipWidth} x {@code clipHeight} viewport are left out.
+     */
+    public void addTrail(float left, float top, float width, float height, TrailTable trail,
+                         float clipWidth, float clipHeight) {
+        addTrail(left, top, width, height, trail, trail.getCount(), clipWidth, clipHeight);
+    }
+
+    /**
+     * Like {@link #addTrail(float, float, float, float, TrailTable, float, float)} with only the first
+     * {@code copyCount} copies of {@code trail}.
+     */
+    public void addTrail(float left, float top, float width, float height, TrailTable trail, int copyCount,
+                         float clipWidth, float clipHeight) {
+        final int count = Math.min(copyCount, trail.getCount());
+        ensureCapacity(quadCount + count + 1);
+        final float centerX = left + width / 2;
+        final float centerY = top + height / 2;
+        for (int i = 0; i < count; i++) {
+            final float halfWidth = width * trail.getScale(i) / 2;
+            final float halfHeight = height * trail.getScale(i) / 2;
+            final float x = centerX + trail.getOffsetX(i);
+            final float y = centerY + trail.getOffsetY(i);
+            if (x - halfWidth < clipWidth && y - halfHeight < clipHeight && x + halfWidth > 0 && y + halfHeight > 0) {
+                add(x - halfWidth, y - halfHeight, x + halfWidth, y + halfHeight, trail.getAlpha(i) / 255f);
+            }
+        }
+        add(left, top, left + width, top + height, 1f);
+    }
+
+    public void add(float left, float top, float right, float bottom, float alpha) {
+        ensureCapacity(quadCount + 1);
+        int index = quadCount * FLOATS_PER_QUAD;
+        index = putVertex(index, left, top, 0f, 0f, alpha);
+        index = putVertex(index, right, top, 1f, 0f, alpha);
+        index = putVertex(index, left, bottom, 0f, 1f, alpha);
+        index = putVertex(index, left, bottom, 0f, 1f, alpha);
+        index = putVertex(index, right, top, 1f, 0f, alpha);
+        putVertex(index, right, bottom, 1f, 1f, alpha);
+        quadCount++;
+    }
+
+    public int getQuadCount() {
+        return quadCount;
+    }
+
+    public int getVertexCount() {
+        return quadCount * VERTICES_PER_QUAD;
+    }
+
+    /**
+     * @return the backing array, valid up to {@code getQuadCount() * FLOATS_PER_QUAD}
+     */
+    public float[] getVertices() {
+        return vertices;
+    }
+
+    public float getLeft(int quad) {
+        return vertices[quad * FLOATS_PER_QUAD];
+    }
+
+    public float getTop(int quad) {
+        return vertices[quad * FLOATS_PER_QUAD + 1];
+    }
+
+    public float getRight(int quad) {
+        return vertices[quad * FLOATS_PER_QUAD + BOTTOM_RIGHT_OFFSET];
+    }
+
+    public float getBottom(int quad) {
+        return vertices[quad * FLOATS_PER_QUAD + BOTTOM_RIGHT_OFFSET + 1];
+    }
+
+    public float getAlpha(int quad) {
+        return vertices[quad * FLOATS_PER_QUAD + 4];
+    }
+
+    private int putVertex(int index, float x, float y, float u, float v, float alpha) {
+        vertices[index] = x;
+        vertices[index + 1] = y;
+        vertices[index + 2] = u;
+        vertices[index + 3] = v;
+        vertices[index + 4] = alpha;
+        return index + FLOATS_PER_VERTEX;
+    }
+
+    private void ensureCapacity(int quads) {
+        if (quads * FLOATS_PER_QUAD > vertices.length) {
+            final float[] grown = new float[Math.max(quads, quadCount * 2) * FLOATS_PER_QUAD];
+            System.arraycopy(vertices, 0, grown, 0, quadCount * FLOATS_PER_QUAD);
+            vertices = grown;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.umut.moveeffect.render;
+
+/**
+ * How the copies of a trail are laid out along the drag vector. Spacing places copy {@code i} of
+ * {@code n} at {@code spacing((i + 1) / n)} of the drag, fading multiplies its alpha by
+ * {@code 1 - fadeAmount * fade((i + 1) / n)} and its size goes from 1 towards {@code endScale}
+ * along with its position.
+ */
+public final class TrailStyle {
+
+    public static final int CURVE_LINEAR = 0;
+    public static final int CURVE_EASE_IN = 1;
+    public static final int CURVE_EASE_OUT = 2;
+    public static final int CURVE_EASE_IN_OUT = 3;
+
+    /**
+     * Evenly spaced copies of the same size and alpha.
+     */
+    public static final TrailStyle DEFAULT = new TrailStyle(CURVE_LINEAR, CURVE_LINEAR, 0f, 1f);
+
+    private final int spacingCurve;
+    private final int fadeCurve;
+    private final float fadeAmount;
+    private final float endScale;
+
+    /**
+     * @param fadeAmount share of the alpha the farthest copy loses, in [0, 1]
+     * @param endScale   size of the farthest copy relative to the selection
+     */
+    public TrailStyle(int spacingCurve, int fadeCurve, float fadeAmount, float endScale) {
+        if (fadeAmount < 0f || fadeAmount > 1f || endScale <= 0f) {
+            throw new IllegalArgumentException("Invalid style " + fadeAmount + ", " + endScale);
+        }
+        this.spacingCurve = spacingCurve;
+        this.fadeCurve = fadeCurve;
+        this.fadeAmount = fadeAmount;
+        this.endScale = endScale;
+    }
+
+    /**
+     * @param t in [0, 1]
+     * @return {@code curve} at {@code t}, 0 at 0 and 1 at 1
+     */
+    public static float evaluate(int curve, float t) {
+        switch (curve) {
+            case CURVE_EASE_IN:
+                return t * t;
+            case CURVE_EASE_OUT:
+                return t * (2f - t);
+            case CURVE_EASE_IN_OUT:
+                return t * t * (3f - 2f * t);
+            case CURVE_LINEAR:
+            default:
+                return t;
+        }
+    }
+
+    public int getSpacingCurve() {
+        return spacingCurve;
+    }
+
+    public int getFadeCurve() {
+        return fadeCurve;
+    }
+
+    public float getFadeAmount() {
+        return fadeAmount;
+    }
+
+    public float getEndScale() {
+        return endScale;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TrailStyle)) {
+            return false;
+        }
+        final TrailStyle that = (TrailStyle) o;
+        return spacingCurve == that.spacingCurve && fadeCurve == that.fadeCurve
+                && Float.compare(fadeAmount, that.fadeAmount) == 0 && Float.compare(endScale, that.endScale) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = spacingCurve;
+        result = 31 * result + fadeCurve;
+        result = 31 * result + Float.floatToIntBits(fadeAmount);
+        result = 31 * result + Float.floatToIntBits(endScale);
+        return result;
+    }
+}
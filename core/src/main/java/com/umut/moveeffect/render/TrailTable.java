@@ -0,0 +1,106 @@
+package com.umut.moveeffect.render;
+
+/**
+ * Per-copy offset, alpha and scale of a trail, evaluated from a {@link TrailStyle} only when one of
+ * its inputs changes, so drawing a trail only reads these arrays. Offsets are relative to the
+ * selection, scales apply around the selection's center.
+ */
+public final class TrailTable {
+
+    private float[] progress = new float[0];
+    private float[] offsetX = new float[0];
+    private float[] offsetY = new float[0];
+    private float[] scale = new float[0];
+    private int[] alpha = new int[0];
+    private int count;
+
+    private TrailStyle style;
+    private int baseAlpha = -1;
+    private float dragX;
+    private float dragY;
+
+    /**
+     * @param count number of copies
+     * @param dragX horizontal distance between the selection and the farthest copy
+     * @param dragY vertical distance between the selection and the farthest copy
+     * @param alpha alpha of the copies before fading, in [0, 255]
+     * @return false when nothing changed since the last call
+     */
+    public boolean update(int count, float dragX, float dragY, int alpha, TrailStyle style) {
+        final int copies = Math.max(count, 0);
+        final boolean curvesChanged = copies != this.count || alpha != baseAlpha || !style.equals(this.style);
+        if (!curvesChanged && dragX == this.dragX && dragY == this.dragY) {
+            return false;
+        }
+        if (curvesChanged) {
+            ensureCapacity(copies);
+            this.count = copies;
+            this.baseAlpha = alpha;
+            this.style = style;
+            for (int i = 0; i < copies; i++) {
+                final float t = (float) (i + 1) / copies;
+                progress[i] = TrailStyle.evaluate(style.getSpacingCurve(), t);
+                scale[i] = 1f + (style.getEndScale() - 1f) * progress[i];
+                this.alpha[i] = Math.round(alpha
+                        * (1f - style.getFadeAmount() * TrailStyle.evaluate(style.getFadeCurve(), t)));
+            }
+        }
+        this.dragX = dragX;
+        this.dragY = dragY;
+        for (int i = 0; i < copies; i++) {
+            offsetX[i] = dragX * progress[i];
+            offsetY[i] = dragY * progress[i];
+        }
+        return true;
+    }
+
+    public void set(TrailTable other) {
+        ensureCapacity(other.count);
+        System.arraycopy(other.progress, 0, progress, 0, other.count);
+        System.arraycopy(other.offsetX, 0, offsetX, 0, other.count);
+        System.arraycopy(other.offsetY, 0, offsetY, 0, other.count);
+        System.arraycopy(other.scale, 0, scale, 0, other.count);
+        System.arraycopy(other.alpha, 0, alpha, 0, other.count);
+        count = other.count;
+        style = other.style;
+        baseAlpha = other.baseAlpha;
+        dragX = other.dragX;
+        dragY = other.dragY;
+    }
+
+    public TrailTable copy() {
+        final TrailTable copy = new TrailTable();
+        copy.set(this);
+        return copy;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public float getOffsetX(int index) {
+        return offsetX[index];
+    }
+
+    public float getOffsetY(int index) {
+        return offsetY[index];
+    }
+
+    public float getScale(int index) {
+        return scale[index];
+    }
+
+    public int getAlpha(int index) {
+        return alpha[index];
+    }
+
+    private void ensureCapacity(int copies) {
+        if (progress.length < copies) {
+            progress = new float[copies];
+            offsetX = new float[copies];
+            offsetY = new float[copies];
+            scale = new float[copies];
+            alpha = new int[copies];
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.umut.moveeffect.encode;
+
+import com.umut.moveeffect.raster.ArgbBuffer;
+import com.umut.moveeffect.raster.TrailCompositor;
+import com.umut.moveeffect.raster.TrailLayer;
+import com.umut.moveeffect.render.TrailStyle;
+import com.umut.moveeffect.render.TrailTable;
+
+import org.junit.Test;
+import org.w3c.dom.Node;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Encodes frames and decodes them again with the JDK's GIF reader. Colors that fall into distinct
+ * quantizer bins, at most 256 of them per frame, have to come back exactly.
+ */
+public class GifEncoderTest {
+
+    private static final int WIDTH = 48;
+    private static final int HEIGHT = 36;
+
+    @Test
+    public void fullFramesWithFewColorsRoundTripExactly() throws IOException {
+        final Random random = new Random(5);
+        for (int colorCount : new int[]{1, 2, 3, 16, 17, 129, 256}) {
+            final ArgbBuffer frame = frame(random, palette(random, colorCount), WIDTH, HEIGHT);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final GifEncoder encoder = new GifEncoder(out, WIDTH, HEIGHT, 0);
+            encoder.addFrame(frame, 0, 0, 100);
+            encoder.finish();
+
+            final List<int[]> canvases = decode(out.toByteArray());
+            assertEquals(1, canvases.size());
+            assertArrayEquals(colorCount + " colors", frame.getPixels(), canvases.get(0));
+        }
+    }
+
+    @Test
+    public void partialFramesDrawOverThePreviousOnes() throws IOException {
+        final Random random = new Random(6);
+        final ArgbBuffer first = frame(random, palette(random, 200), WIDTH, HEIGHT);
+        final ArgbBuffer second = frame(random, palette(random, 40), 10, 6);
+        final ArgbBuffer third = frame(random, palette(random, 2), 1, 1);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final GifEncoder encoder = new GifEncoder(out, WIDTH, HEIGHT, 0);
+        encoder.addFrame(first, 0, 0, 40);
+        encoder.addFrame(second, 5, 7, 40);
+        encoder.addFrame(third, WIDTH - 1, HEIGHT - 1, 40);
+        encoder.finish();
+
+        final ArgbBuffer expected = first.copy();
+        TrailCompositor.blit(expected, second, 5, 7, 255, 0, HEIGHT);
+        final List<int[]> canvases = decode(out.toByteArray());
+        assertEquals(3, canvases.size());
+        assertArrayEquals(expected.getPixels(), canvases.get(1));
+        TrailCompositor.blit(expected, third, WIDTH - 1, HEIGHT - 1, 255, 0, HEIGHT);
+        assertArrayEquals(expected.getPixels(), canvases.get(2));
+    }
+
+    @Test
+    public void manyColorsStayClose() throws IOException {
+        final ArgbBuffer frame = new ArgbBuffer(64, 64);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                frame.getPixels()[y * 64 + x] = 0xFF000000 | (x * 4) << 16 | (y * 4) << 8 | (x + y) * 2;
+            }
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final GifEncoder encoder = new GifEncoder(out, 64, 64, 0);
+        encoder.addFrame(frame, 0, 0, 100);
+        encoder.finish();
+
+        final int[] decoded = decode(out.toByteArray()).get(0);
+        long error = 0;
+        for (int i = 0; i < decoded.length; i++) {
+            for (int shift = 0; shift <= 16; shift += 8) {
+                error += Math.abs((decoded[i] >> shift & 0xFF) - (frame.getPixels()[i] >> shift & 0xFF));
+            }
+        }
+        assertEquals(0.0, (double) error / (decoded.length * 3), 8.0);
+    }
+
+    @Test
+    public void animationBuildsUpTheTrailCopyByCopy() throws IOException {
+        final Random random = new Random(7);
+        final int[] palette = palette(random, 64);
+        final ArgbBuffer background = frame(random, palette, WIDTH, HEIGHT);
+        final ArgbBuffer crop = frame(random, palette, 9, 7);
+        final TrailTable trail = new TrailTable();
+        trail.update(4, 24f, 12f, 255, TrailStyle.DEFAULT);
+        final TrailAnimationWriter writer = new TrailAnimationWriter(background);
+        writer.addLayer(new TrailLayer(crop, 3f, 2f, trail));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final GifEncoder encoder = new GifEncoder(out, WIDTH, HEIGHT, 0);
+        writer.write(encoder, 40, 1000);
+        encoder.finish();
+
+        final List<int[]> canvases = decode(out.toByteArray());
+        assertEquals(5, canvases.size());
+        for (int copies = 0; copies < canvases.size(); copies++) {
+            final ArgbBuffer expected = background.copy();
+            TrailCompositor.drawCopies(expected, crop, 3, 2, 6f, 3f, copies, 255, 0, HEIGHT);
+            TrailCompositor.blit(expected, crop, 3, 2, 255, 0, HEIGHT);
+            assertArrayEquals("frame " + copies, expected.getPixels(), canvases.get(copies));
+        }
+    }
+
+    /**
+     * @return opaque colors that the quantizer keeps apart, one per 5 bit bin
+     */
+    private static int[] palette(Random random, int colorCount) {
+        final boolean[] used = new boolean[1 << 15];
+        final int[] colors = new int[colorCount];
+        for (int i = 0; i < colorCount; i++) {
+            int bin;
+            do {
+                bin = random.nextInt(1 << 15);
+            } while (used[bin]);
+            used[bin] = true;
+            colors[i] = 0xFF000000 | (bin >> 10) << 19 | (bin >> 5 & 0x1F) << 11 | (bin & 0x1F) << 3;
+        }
+        return colors;
+    }
+
+    /**
+     * @return a frame using every color of {@code palette} at least once when large enough
+     */
+    private static ArgbBuffer frame(Random random, int[] palette, int width, int height) {
+        final ArgbBuffer frame = new ArgbBuffer(width, height);
+        final int[] pixels = frame.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = i < palette.length ? palette[i] : palette[random.nextInt(palette.length)];
+        }
+        return frame;
+    }
+
+    /**
+     * @return the canvas as ARGB after every frame, each frame drawn over the previous ones
+     */
+    private static List<int[]> decode(byte[] gif) throws IOException {
+        final ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        final List<int[]> canvases = new ArrayList<>();
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(gif))) {
+            reader.setInput(in);
+            final int width = reader.getWidth(0);
+            final int height = reader.getHeight(0);
+            final int[] canvas = new int[width * height];
+            final int frameCount = reader.getNumImages(true);
+            for (int i = 0; i < frameCount; i++) {
+                final BufferedImage image = reader.read(i);
+                final Node descriptor = child(reader.getImageMetadata(i), "ImageDescriptor");
+                final int left = attribute(descriptor, "imageLeftPosition");
+                final int top = attribute(descriptor, "imageTopPosition");
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        canvas[(top + y) * width + left + x] = image.getRGB(x, y);
+                    }
+                }
+                canvases.add(canvas.clone());
+            }
+        } finally {
+            reader.dispose();
+        }
+        return canvases;
+    }
+
+    private static Node child(IIOMetadata metadata, String name) {
+        final Node root = metadata.getAsTree(metadata.getNativeMetadataFormatName());
+        for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeName().equals(name)) {
+                return node;
+            }
+        }
+        throw new AssertionError("No " + name + " in the frame metadata");
+    }
+
+    private static int attribute(Node node, String name) {
+        return Integer.parseInt(node.getAttributes().getNamedItem(name).getNodeValue());
+    }
+}
@@ -0,0 +1,86 @@
+package com.umut.moveeffect.encode;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Encodes rows and decodes the image again with the JDK's PNG reader, which has to return every
+ * pixel exactly.
+ */
+public class PngEncoderTest {
+
+    @Test
+    public void roundTripsTranslucentNoise() throws IOException {
+        final Random random = new Random(13);
+        // incompressible enough to span several data chunks
+        final int[] pixels = new int[300 * 200];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+
+        assertRoundTrip(pixels, 300, 200);
+    }
+
+    @Test
+    public void roundTripsSmoothImages() throws IOException {
+        final int[] pixels = new int[257 * 3];
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 257; x++) {
+                pixels[y * 257 + x] = 0xFF000000 | (x & 0xFF) << 16 | (255 - (x & 0xFF)) << 8 | y * 100;
+            }
+        }
+
+        assertRoundTrip(pixels, 257, 3);
+        assertRoundTrip(new int[]{0x80FF0000}, 1, 1);
+    }
+
+    @Test
+    public void needsEveryRowBeforeFinishing() throws IOException {
+        final PngEncoder encoder = new PngEncoder(new ByteArrayOutputStream(), 2, 2);
+        encoder.addRow(new int[2], 0);
+        try {
+            encoder.finish();
+            fail("Finished with a row missing");
+        } catch (IllegalStateException expected) {
+            // rejected
+        }
+        encoder.addRow(new int[2], 0);
+        try {
+            encoder.addRow(new int[2], 0);
+            fail("Added a row past the bottom");
+        } catch (IllegalStateException expected) {
+            // rejected
+        }
+    }
+
+    private static void assertRoundTrip(int[] pixels, int width, int height) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final PngEncoder encoder = new PngEncoder(out, width, height);
+        // rows are handed over from a buffer with an offset, like the bands of the renderer
+        final int[] band = new int[width + 3];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(pixels, y * width, band, 3, width);
+            encoder.addRow(band, 3);
+        }
+        encoder.finish();
+
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals("pixel " + x + "," + y, pixels[y * width + x], image.getRGB(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.umut.moveeffect.geometry;
+
+import org.junit.Test;
+
+import static com.umut.moveeffect.geometry.PolygonTest.polygon;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClosureDetectorTest {
+
+    private static final float SNAP_DISTANCE = 40f;
+    private static final float MIN_SNAP_AREA = 900f;
+    private static final float DEVIATION = 16f;
+    private static final int MIN_POINT_COUNT = 16;
+
+    private final ClosureDetector detector = new ClosureDetector(SNAP_DISTANCE, MIN_SNAP_AREA, DEVIATION,
+            MIN_POINT_COUNT);
+
+    @Test
+    public void snapsWhenApproachingTheStartAroundEnoughArea() {
+        final Polygon stroke = polygon(0, 0, 100, 0, 100, 100, 0, 100);
+
+        assertTrue(detector.isClosing(stroke, 0, 100, 0, 30, 4));
+    }
+
+    @Test
+    public void doesNotSnapWhileMovingAwayFromTheStart() {
+        final Polygon stroke = polygon(0, 0, 100, 0, 100, 100, 0, 30);
+
+        assertFalse(detector.isClosing(stroke, 0, 30, 0, 35, 4));
+    }
+
+    @Test
+    public void doesNotSnapAroundTooSmallAnArea() {
+        final Polygon stroke = polygon(0, 0, 20, 0, 20, 20);
+
+        assertFalse(detector.isClosing(stroke, 20, 20, 0, 20, 3));
+    }
+
+    @Test
+    public void closesLongStrokesBackNextToTheStart() {
+        final Polygon stroke = polygon(0, 0, 5, 0, 10, 0);
+
+        assertFalse(detector.isClosing(stroke, 10, 0, 5, 5, MIN_POINT_COUNT));
+        assertTrue(detector.isClosing(stroke, 10, 0, 5, 5, MIN_POINT_COUNT + 1));
+        assertFalse(detector.isClosing(stroke, 10, 0, 5, DEVIATION, MIN_POINT_COUNT + 1));
+    }
+
+    @Test
+    public void neverClosesAnEmptyStroke() {
+        assertFalse(detector.isClosing(new Polygon(), 0, 0, 0, 0, MIN_POINT_COUNT + 1));
+    }
+}
@@ -0,0 +1,136 @@
+package com.umut.moveeffect.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PolygonTest {
+
+    private static final float DELTA = 1e-4f;
+
+    @Test
+    public void containsPointsInsideOfSquare() {
+        final Polygon square = polygon(0, 0, 10, 0, 10, 10, 0, 10);
+
+        assertTrue(square.contains(5, 5));
+        assertTrue(square.contains(0.5f, 9.5f));
+        assertFalse(square.contains(-1, 5));
+        assertFalse(square.contains(5, 11));
+    }
+
+    @Test
+    public void leavesConcaveNotchOut() {
+        // U shape open at the top between x = 4 and x = 6
+        final Polygon shape = polygon(0, 0, 4, 0, 4, 6, 6, 6, 6, 0, 10, 0, 10, 10, 0, 10);
+
+        assertFalse(shape.contains(5, 3));
+        assertTrue(shape.contains(2, 3));
+        assertTrue(shape.contains(5, 8));
+    }
+
+    @Test
+    public void usesEvenOddRuleForSelfIntersections() {
+        // pentagram, the inner pentagon is covered twice
+        final Polygon star = new Polygon();
+        for (int i = 0; i < 5; i++) {
+            final double angle = Math.PI / 2 + i * 4 * Math.PI / 5;
+            final float x = (float) (100 * Math.cos(angle));
+            final float y = (float) (100 * Math.sin(angle));
+            if (i == 0) {
+                star.moveTo(x, y);
+            } else {
+                star.lineTo(x, y);
+            }
+        }
+
+        assertFalse(star.contains(0, 0));
+        assertTrue(star.contains(0, 80));
+    }
+
+    @Test
+    public void rejectsEverythingBelowThreePoints() {
+        final Polygon line = polygon(0, 0, 10, 10);
+
+        assertFalse(line.contains(5, 5));
+        assertEquals(0f, line.getArea(), DELTA);
+    }
+
+    @Test
+    public void tracksBoundsAndStartsOverOnMoveTo() {
+        final Polygon polygon = polygon(3, 4, -2, 8, 7, -1);
+
+        assertEquals(-2f, polygon.getMinX(), DELTA);
+        assertEquals(-1f, polygon.getMinY(), DELTA);
+        assertEquals(7f, polygon.getMaxX(), DELTA);
+        assertEquals(8f, polygon.getMaxY(), DELTA);
+
+        polygon.moveTo(1, 1);
+
+        assertEquals(1, polygon.size());
+        assertEquals(1f, polygon.getMinX(), DELTA);
+        assertEquals(1f, polygon.getMaxY(), DELTA);
+    }
+
+    @Test
+    public void computesShoelaceAreaIncrementally() {
+        final Polygon triangle = polygon(0, 0, 10, 0, 0, 10);
+
+        assertEquals(50f, triangle.getArea(), DELTA);
+        assertEquals(75f, triangle.getAreaClosedWith(-5, 5), DELTA);
+
+        triangle.lineTo(-5, 5);
+
+        assertEquals(75f, triangle.getArea(), DELTA);
+    }
+
+    @Test
+    public void flattensQuadraticCurvesThroughTheEndPoint() {
+        final Polygon polygon = new Polygon();
+        polygon.moveTo(0, 0);
+        polygon.quadTo(5, 10, 10, 0);
+
+        assertEquals(5, polygon.size());
+        assertEquals(10f, polygon.getX(4), DELTA);
+        assertEquals(0f, polygon.getY(4), DELTA);
+        assertEquals(5f, polygon.getMaxY(), DELTA);
+    }
+
+    @Test
+    public void reportsCrossingsOfHorizontalLine() {
+        final Polygon square = polygon(0, 0, 10, 0, 10, 10, 0, 10);
+        final float[] crossings = new float[square.size()];
+
+        final int count = square.getCrossings(5, crossings);
+
+        assertEquals(2, count);
+        assertEquals(10f, Math.max(crossings[0], crossings[1]), DELTA);
+        assertEquals(0f, Math.min(crossings[0], crossings[1]), DELTA);
+        assertEquals(0, square.getCrossings(20, crossings));
+    }
+
+    @Test
+    public void keepsOnlyTheClosedLoop() {
+        // a tail from (0, 5) into a square loop closed at (10, 5)
+        final Polygon stroke = polygon(0, 5, 10, 0, 20, 0, 20, 10, 10, 10);
+
+        assertEquals(100f, stroke.getLoopArea(1, 10, 5), DELTA);
+
+        stroke.retainLoop(1, 10, 5);
+
+        assertEquals(5, stroke.size());
+        assertEquals(10f, stroke.getX(0), DELTA);
+        assertEquals(5f, stroke.getY(0), DELTA);
+        assertEquals(100f, stroke.getArea(), DELTA);
+    }
+
+    static Polygon polygon(float... coordinates) {
+        final Polygon polygon = new Polygon();
+        polygon.moveTo(coordinates[0], coordinates[1]);
+        for (int i = 2; i < coordinates.length; i += 2) {
+            polygon.lineTo(coordinates[i], coordinates[i + 1]);
+        }
+        return polygon;
+    }
+}
@@ -0,0 +1,118 @@
+package com.umut.moveeffect.geometry;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.umut.moveeffect.geometry.PolygonTest.polygon;
+import static org.junit.Assert.assertEquals;
+
+public class SegmentGridTest {
+
+    private static final float DELTA = 1e-3f;
+
+    private final SegmentGrid grid = new SegmentGrid(32f);
+    private final float[] crossing = new float[2];
+
+    @Test
+    public void findsTheCrossedSegmentAndPoint() {
+        // down, right, up: the next segment heading left crosses the first one
+        final Polygon stroke = polygon(10, 0, 10, 100, 60, 100, 60, 50);
+        grid.update(stroke);
+
+        assertEquals(0, grid.findCrossing(stroke, 0, 50, crossing));
+        assertEquals(10f, crossing[0], DELTA);
+        assertEquals(50f, crossing[1], DELTA);
+    }
+
+    @Test
+    public void reportsTheEarliestOfSeveralCrossings() {
+        final Polygon stroke = polygon(0, 0, 0, 100, 200, 100, 200, 0, 100, 0, 100, 50);
+        grid.update(stroke);
+
+        // heading left from (100, 50) crosses x = 0 only, heading right crosses x = 200 only
+        assertEquals(0, grid.findCrossing(stroke, -50, 50, crossing));
+        assertEquals(2, grid.findCrossing(stroke, 250, 50, crossing));
+        assertEquals(200f, crossing[0], DELTA);
+    }
+
+    @Test
+    public void ignoresTheSegmentItStartsFrom() {
+        final Polygon stroke = polygon(0, 0, 100, 0, 100, 100);
+        grid.update(stroke);
+
+        assertEquals(-1, grid.findCrossing(stroke, 100, 200, crossing));
+        assertEquals(-1, grid.findCrossing(stroke, 50, 50, crossing));
+    }
+
+    @Test
+    public void needsThreePoints() {
+        final Polygon stroke = polygon(0, 0, 100, 100);
+        grid.update(stroke);
+
+        assertEquals(-1, grid.findCrossing(stroke, 100, 0, crossing));
+    }
+
+    @Test
+    public void startsOverWhenThePolygonShrinks() {
+        final Polygon stroke = polygon(1000, 1000, 1100, 1000, 1100, 1100, 1000, 1100, 10, 0, 10, 100, 60, 100);
+        grid.update(stroke);
+        stroke.retainLoop(5, 10, 0);
+        grid.update(stroke);
+
+        // segment 0 now runs down x = 10, far from the cells it was indexed in before
+        assertEquals(0, grid.findCrossing(stroke, 0, 50, crossing));
+        assertEquals(10f, crossing[0], DELTA);
+        assertEquals(58.333f, crossing[1], DELTA);
+    }
+
+    @Test
+    public void matchesAllPairsTestOnRandomStrokes() {
+        final Random random = new Random(11);
+        for (int run = 0; run < 200; run++) {
+            final Polygon stroke = new Polygon();
+            grid.reset();
+            stroke.moveTo(random.nextFloat() * 500, random.nextFloat() * 500);
+            for (int i = 0; i < 60; i++) {
+                final float x = stroke.getX(stroke.size() - 1) + random.nextFloat() * 120 - 60;
+                final float y = stroke.getY(stroke.size() - 1) + random.nextFloat() * 120 - 60;
+                grid.update(stroke);
+                final int expected = findCrossingAllPairs(stroke, x, y);
+                assertEquals("run " + run + " point " + i, expected, grid.findCrossing(stroke, x, y, crossing));
+                stroke.lineTo(x, y);
+            }
+        }
+    }
+
+    /**
+     * Reference: the earliest crossing over every segment but the one ending at the start point.
+     */
+    private static int findCrossingAllPairs(Polygon stroke, float x, float y) {
+        if (stroke.size() < 3) {
+            return -1;
+        }
+        final float startX = stroke.getX(stroke.size() - 1);
+        final float startY = stroke.getY(stroke.size() - 1);
+        final float rx = x - startX;
+        final float ry = y - startY;
+        int crossed = -1;
+        float nearest = Float.MAX_VALUE;
+        for (int segment = 0; segment < stroke.size() - 2; segment++) {
+            final float sx = stroke.getX(segment + 1) - stroke.getX(segment);
+            final float sy = stroke.getY(segment + 1) - stroke.getY(segment);
+            final float denominator = rx * sy - ry * sx;
+            if (Math.abs(denominator) < 1e-6f) {
+                continue;
+            }
+            final float qx = stroke.getX(segment) - startX;
+            final float qy = stroke.getY(segment) - startY;
+            final float t = (qx * sy - qy * sx) / denominator;
+            final float u = (qx * ry - qy * rx) / denominator;
+            if (t > 0f && t <= 1f && u >= 0f && u <= 1f && t < nearest) {
+                nearest = t;
+                crossed = segment;
+            }
+        }
+        return crossed;
+    }
+}
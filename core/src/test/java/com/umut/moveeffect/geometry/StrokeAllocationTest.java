@@ -0,0 +1,88 @@
+package com.umut.moveeffect.geometry;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The geometry {@code EditableImageView.onTouchEvent} runs per sample, a lasso stroke with its
+ * closure, crossing and hit tests, must not allocate once the buffers have grown to the stroke.
+ */
+public class StrokeAllocationTest {
+
+    private static final int POINT_COUNT = 2000;
+    private static final int WARM_UP_STROKES = 200;
+
+    private final Polygon polygon = new Polygon();
+    private final ClosureDetector closureDetector = new ClosureDetector(40f, 900f, 16f, 10);
+    private final SegmentGrid segmentGrid = new SegmentGrid(32f);
+    private final float[] crossing = new float[2];
+    // read by nothing, keeps the hit tests from being optimized away
+    private int hitCount;
+
+    @Test
+    public void strokeDoesNotAllocateAfterWarmUp() {
+        final com.sun.management.ThreadMXBean threads = threadBean();
+        final long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARM_UP_STROKES; i++) {
+            stroke();
+        }
+
+        // the bean itself may allocate for every reading, measure that first
+        final long first = threads.getThreadAllocatedBytes(threadId);
+        final long overhead = threads.getThreadAllocatedBytes(threadId) - first;
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        final int samples = stroke();
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertEquals(POINT_COUNT - 1, samples);
+        assertEquals(0L, Math.max(allocated, 0L));
+    }
+
+    /**
+     * Spirals outwards so the stroke never closes nor crosses itself, and hit tests every sample.
+     *
+     * @return number of samples added before the stroke closed
+     */
+    private int stroke() {
+        polygon.reset();
+        segmentGrid.reset();
+        polygon.moveTo(500f, 500f);
+        float lastX = 500f;
+        float lastY = 500f;
+        int samples = 0;
+        for (int i = 1; i < POINT_COUNT; i++) {
+            final double angle = i * 0.05;
+            final float radius = 50f + i * 0.5f;
+            final float x = 500f + (float) (radius * Math.cos(angle));
+            final float y = 500f + (float) (radius * Math.sin(angle));
+            if (closureDetector.isClosing(polygon, lastX, lastY, x, y, i)) {
+                break;
+            }
+            segmentGrid.update(polygon);
+            if (segmentGrid.findCrossing(polygon, x, y, crossing) >= 0) {
+                break;
+            }
+            polygon.quadTo(lastX, lastY, (lastX + x) / 2, (lastY + y) / 2);
+            if (polygon.contains(x, y)) {
+                hitCount++;
+            }
+            lastX = x;
+            lastY = y;
+            samples++;
+        }
+        return samples;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+}
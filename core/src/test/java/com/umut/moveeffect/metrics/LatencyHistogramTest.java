@@ -0,0 +1,157 @@
+package com.umut.moveeffect.metrics;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram("test");
+
+    @Test
+    public void keepsSmallValuesExactly() {
+        for (int value = 0; value < 128; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(0L, histogram.getValueAtPercentile(0));
+        for (int value = 0; value < 128; value++) {
+            assertEquals(value, histogram.getValueAtPercentile((value + 1) * 100d / 128));
+        }
+    }
+
+    @Test
+    public void reportsEveryValueWithinOneSixtyFourth() {
+        final Random random = new Random(47);
+        for (int i = 0; i < 20000; i++) {
+            // every magnitude up to the largest trackable one, bucket edges included
+            final int bits = random.nextInt(36);
+            final long value = i % 2 == 0 ? (1L << bits) - random.nextInt(2) : random.nextLong() >>> (64 - bits - 1);
+            final long clamped = Math.min(Math.max(value, 0L), LatencyHistogram.MAX_VALUE);
+            histogram.reset();
+            histogram.record(clamped);
+            // the maximum caps the reported value, keep it out of the way
+            histogram.record(LatencyHistogram.MAX_VALUE);
+
+            final long reported = histogram.getValueAtPercentile(50);
+            assertTrue(clamped + " reported as " + reported,
+                    reported >= clamped && reported - clamped <= clamped / 64);
+            // the reported value is the top of the bucket, the next one starts right above it
+            histogram.reset();
+            histogram.record(reported);
+            histogram.record(LatencyHistogram.MAX_VALUE);
+            assertEquals(reported, histogram.getValueAtPercentile(50));
+            if (reported < LatencyHistogram.MAX_VALUE) {
+                histogram.reset();
+                histogram.record(reported + 1);
+                histogram.record(LatencyHistogram.MAX_VALUE);
+                assertTrue(reported + 1 + " shares a bucket with " + clamped,
+                        histogram.getValueAtPercentile(50) > reported);
+            }
+        }
+    }
+
+    @Test
+    public void findsPercentilesOfUniformValues() {
+        for (int value = 1; value <= 1000000; value++) {
+            histogram.record(value);
+        }
+
+        for (double percentile : new double[]{1, 10, 50, 90, 99, 99.9}) {
+            final long exact = (long) Math.ceil(percentile * 10000);
+            final long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + "th percentile " + exact + " reported as " + reported,
+                    reported >= exact && reported - exact <= exact / 64);
+        }
+        assertEquals(1000000L, histogram.getValueAtPercentile(100));
+        assertEquals(1L, histogram.getMinValue());
+        assertEquals(500000.5, histogram.getMean(), 1e-6);
+    }
+
+    @Test
+    public void separatesTheTailOfABimodalDistribution() {
+        for (int i = 0; i < 990; i++) {
+            histogram.record(2000L);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5000000L);
+        }
+
+        assertEquals(2000L, histogram.getValueAtPercentile(50), 2000 / 64);
+        assertEquals(2000L, histogram.getValueAtPercentile(99), 2000 / 64);
+        assertEquals(5000000L, histogram.getValueAtPercentile(99.1), 5000000 / 64);
+        assertEquals(5000000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void clampsValuesOutsideOfTheTrackableRange() {
+        histogram.record(-5L);
+        histogram.record(LatencyHistogram.MAX_VALUE * 4);
+
+        assertEquals(2L, histogram.getTotalCount());
+        assertEquals(0L, histogram.getMinValue());
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMaxValue());
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getValueAtPercentile(100));
+        assertEquals(0L, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        histogram.record(1000L);
+        histogram.record(3000L);
+
+        histogram.reset();
+
+        assertEquals(0L, histogram.getTotalCount());
+        assertEquals(0L, histogram.getMinValue());
+        assertEquals(0L, histogram.getMaxValue());
+        assertEquals(0d, histogram.getMean(), 0d);
+        assertEquals(0L, histogram.getValueAtPercentile(99));
+        histogram.record(7L);
+        assertEquals(7L, histogram.getMinValue());
+        assertEquals(7L, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        final com.sun.management.ThreadMXBean threads = threadBean();
+        final long threadId = Thread.currentThread().getId();
+        final Random random = new Random(53);
+        final long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong() >>> random.nextInt(64);
+        }
+        for (int i = 0; i < 20; i++) {
+            recordAll(values);
+        }
+
+        // the bean itself may allocate for every reading, measure that first
+        final long first = threads.getThreadAllocatedBytes(threadId);
+        final long overhead = threads.getThreadAllocatedBytes(threadId) - first;
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        recordAll(values);
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertEquals(0L, Math.max(allocated, 0L));
+    }
+
+    private void recordAll(long[] values) {
+        for (int i = 0; i < values.length; i++) {
+            histogram.record(values[i]);
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+}
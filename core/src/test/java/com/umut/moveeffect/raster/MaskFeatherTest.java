@@ -0,0 +1,97 @@
+package com.umut.moveeffect.raster;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MaskFeatherTest {
+
+    private static final int SIZE = 80;
+
+    @Test
+    public void keepsTheInteriorOpaque() {
+        for (int radius = 1; radius <= 6; radius++) {
+            final byte[] mask = new byte[SIZE * SIZE];
+            Arrays.fill(mask, (byte) 0xFF);
+
+            MaskFeather.blur(mask, SIZE, SIZE, SIZE, radius);
+
+            final int padding = MaskFeather.getPadding(radius);
+            for (int y = padding; y < SIZE - padding; y++) {
+                for (int x = padding; x < SIZE - padding; x++) {
+                    assertEquals("radius " + radius + " at " + x + "," + y, 255, mask[y * SIZE + x] & 0xFF);
+                }
+            }
+            // the border fades against the transparent outside
+            assertTrue((mask[0] & 0xFF) < 255);
+        }
+    }
+
+    @Test
+    public void turnsAStepIntoARampAsWideAsThePadding() {
+        for (int radius = 1; radius <= 6; radius++) {
+            final byte[] mask = new byte[SIZE * SIZE];
+            for (int y = 0; y < SIZE; y++) {
+                Arrays.fill(mask, y * SIZE, y * SIZE + SIZE / 2, (byte) 0xFF);
+            }
+
+            MaskFeather.blur(mask, SIZE, SIZE, SIZE, radius);
+
+            final int padding = MaskFeather.getPadding(radius);
+            final int row = SIZE / 2 * SIZE;
+            // the left border fades against the outside as well, start past its reach
+            for (int x = padding + 1; x < SIZE; x++) {
+                assertTrue("radius " + radius + " rises at " + x,
+                        (mask[row + x] & 0xFF) <= (mask[row + x - 1] & 0xFF));
+            }
+            for (int x = 0; x < SIZE; x++) {
+                final int value = mask[row + x] & 0xFF;
+                if (x >= padding && x < SIZE / 2 - padding) {
+                    assertEquals("radius " + radius + " at " + x, 255, value);
+                } else if (x >= SIZE / 2 + padding) {
+                    assertEquals("radius " + radius + " at " + x, 0, value);
+                }
+            }
+            // the pixels on both sides of the step are softened
+            assertTrue((mask[row + SIZE / 2 - 1] & 0xFF) < 255);
+            assertTrue((mask[row + SIZE / 2] & 0xFF) > 0);
+        }
+    }
+
+    @Test
+    public void leavesTheRowPaddingAlone() {
+        final int width = 30;
+        final int stride = 36;
+        final byte[] mask = new byte[stride * width];
+        Arrays.fill(mask, (byte) 0x5A);
+        for (int y = 10; y < 20; y++) {
+            Arrays.fill(mask, y * stride + 10, y * stride + 20, (byte) 0xFF);
+        }
+
+        MaskFeather.blur(mask, width, width, stride, 3);
+
+        for (int y = 0; y < width; y++) {
+            for (int x = width; x < stride; x++) {
+                assertEquals(0x5A, mask[y * stride + x]);
+            }
+        }
+    }
+
+    @Test
+    public void doesNothingWithoutARadius() {
+        final byte[] mask = new byte[SIZE * SIZE];
+        new Random(59).nextBytes(mask);
+        final byte[] original = mask.clone();
+
+        MaskFeather.blur(mask, SIZE, SIZE, SIZE, 0);
+        assertArrayEquals(original, mask);
+        MaskFeather.blur(mask, SIZE, SIZE, SIZE, -2);
+        assertArrayEquals(original, mask);
+        assertEquals(0, MaskFeather.getPadding(-2));
+    }
+}
@@ -0,0 +1,139 @@
+package com.umut.moveeffect.raster;
+
+import com.umut.moveeffect.render.QuadBatch;
+import com.umut.moveeffect.render.TrailStyle;
+import com.umut.moveeffect.render.TrailTable;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The quad batch the GL renderer uploads, drawn by the software stand-in, against the copy by copy
+ * composite the Canvas path and the headless renderer produce.
+ */
+public class QuadBatchRasterizerTest {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 300;
+
+    @Test
+    public void batchedTrailMatchesCopyByCopyComposite() {
+        final Random random = new Random(17);
+        for (int run = 0; run < 50; run++) {
+            final ArgbBuffer texture = texture(random, 10 + random.nextInt(60), 10 + random.nextInt(60));
+            final int left = random.nextInt(WIDTH) - 30;
+            final int top = random.nextInt(HEIGHT) - 30;
+            final int repCount = 1 + random.nextInt(50);
+            final int dragX = (random.nextInt(400) - 200) / repCount * repCount;
+            final int dragY = (random.nextInt(400) - 200) / repCount * repCount;
+            final int alpha = random.nextInt(256);
+            final ArgbBuffer background = texture(random, WIDTH, HEIGHT);
+
+            final ArgbBuffer expected = background.copy();
+            TrailCompositor.drawCopies(expected, texture, left, top, (float) dragX / repCount,
+                    (float) dragY / repCount, repCount, alpha, 0, HEIGHT);
+            TrailCompositor.blit(expected, texture, left, top, 255, 0, HEIGHT);
+
+            final TrailTable trail = new TrailTable();
+            trail.update(repCount, dragX, dragY, alpha, TrailStyle.DEFAULT);
+            final QuadBatch batch = new QuadBatch();
+            batch.addTrail(left, top, texture.getWidth(), texture.getHeight(), trail, WIDTH, HEIGHT);
+            final ArgbBuffer actual = background.copy();
+            QuadBatchRasterizer.draw(actual, texture, batch, 0, HEIGHT);
+
+            assertArrayEquals("run " + run, expected.getPixels(), actual.getPixels());
+        }
+    }
+
+    @Test
+    public void stripsAddUpToTheFullDraw() {
+        final Random random = new Random(3);
+        final ArgbBuffer texture = texture(random, 40, 30);
+        final TrailTable trail = new TrailTable();
+        trail.update(20, 120f, 250f, 150, new TrailStyle(TrailStyle.CURVE_EASE_OUT, TrailStyle.CURVE_LINEAR,
+                0.7f, 1.8f));
+        final QuadBatch batch = new QuadBatch();
+        batch.addTrail(30.3f, 10.6f, texture.getWidth(), texture.getHeight(), trail, WIDTH, HEIGHT);
+        final ArgbBuffer background = texture(random, WIDTH, HEIGHT);
+
+        final ArgbBuffer full = background.copy();
+        QuadBatchRasterizer.draw(full, texture, batch, 0, HEIGHT);
+        final ArgbBuffer strips = background.copy();
+        for (int row = 0; row < HEIGHT; row += 7) {
+            QuadBatchRasterizer.draw(strips, texture, batch, row, Math.min(row + 7, HEIGHT));
+        }
+
+        assertArrayEquals(full.getPixels(), strips.getPixels());
+    }
+
+    @Test
+    public void samplesScaledQuadsNearestNeighbour() {
+        final ArgbBuffer texture = new ArgbBuffer(2, 2, new int[]{
+                0xFFFF0000, 0xFF00FF00,
+                0xFF0000FF, 0xFFFFFFFF,
+        });
+        final ArgbBuffer dst = new ArgbBuffer(6, 6);
+        final QuadBatch batch = new QuadBatch();
+        batch.add(1f, 1f, 5f, 5f, 1f);
+
+        QuadBatchRasterizer.draw(dst, texture, batch, 0, 6);
+
+        assertEquals(0, dst.getPixel(0, 0));
+        assertEquals(0xFFFF0000, dst.getPixel(1, 1));
+        assertEquals(0xFFFF0000, dst.getPixel(2, 2));
+        assertEquals(0xFF00FF00, dst.getPixel(3, 1));
+        assertEquals(0xFF0000FF, dst.getPixel(2, 3));
+        assertEquals(0xFFFFFFFF, dst.getPixel(4, 4));
+        assertEquals(0, dst.getPixel(5, 5));
+    }
+
+    @Test
+    public void samplesScaledQuadsAtPixelCentersLikeCanvas() {
+        final Random random = new Random(19);
+        for (int run = 0; run < 50; run++) {
+            final ArgbBuffer texture = texture(random, 3 + random.nextInt(30), 3 + random.nextInt(30));
+            final float left = random.nextFloat() * 100;
+            final float top = random.nextFloat() * 100;
+            final float right = left + texture.getWidth() * (0.3f + random.nextFloat() * 2);
+            final float bottom = top + texture.getHeight() * (0.3f + random.nextFloat() * 2);
+            final QuadBatch batch = new QuadBatch();
+            batch.add(left, top, right, bottom, 1f);
+            final ArgbBuffer quad = new ArgbBuffer(WIDTH, HEIGHT);
+            QuadBatchRasterizer.draw(quad, texture, batch, 0, HEIGHT);
+            final ArgbBuffer canvas = new ArgbBuffer(WIDTH, HEIGHT);
+            TrailCompositor.drawRect(canvas, texture, left, top, right, bottom, 255, 0, HEIGHT);
+
+            // only the anti-aliased edge of the Canvas path differs
+            for (int y = (int) Math.ceil(top); y < (int) Math.floor(bottom); y++) {
+                for (int x = (int) Math.ceil(left); x < (int) Math.floor(right); x++) {
+                    assertEquals("run " + run + " at " + x + "," + y, canvas.getPixel(x, y), quad.getPixel(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void appliesQuadAlphaWithSourceOver() {
+        final ArgbBuffer texture = new ArgbBuffer(1, 1, new int[]{0xFFFFFFFF});
+        final ArgbBuffer dst = new ArgbBuffer(1, 1, new int[]{0xFF000000});
+        final QuadBatch batch = new QuadBatch();
+        batch.add(0f, 0f, 1f, 1f, 128 / 255f);
+
+        QuadBatchRasterizer.draw(dst, texture, batch, 0, 1);
+
+        assertEquals(0xFF808080, dst.getPixel(0, 0));
+    }
+
+    static ArgbBuffer texture(Random random, int width, int height) {
+        final int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            // a quarter transparent, the rest of any alpha
+            pixels[i] = random.nextInt(4) == 0 ? 0 : ArgbUtils.premultiply(random.nextInt());
+        }
+        return new ArgbBuffer(width, height, pixels);
+    }
+}
@@ -0,0 +1,90 @@
+package com.umut.moveeffect.raster;
+
+import com.umut.moveeffect.render.TrailStyle;
+import com.umut.moveeffect.render.TrailTable;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.umut.moveeffect.raster.QuadBatchRasterizerTest.texture;
+import static org.junit.Assert.assertArrayEquals;
+
+public class StripCompositorTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 250;
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(7);
+
+    @AfterClass
+    public static void shutDown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    @Test
+    public void matchesTheCopyRectsDrawnInOrder() {
+        final Random random = new Random(31);
+        for (int run = 0; run < 20; run++) {
+            final List<TrailLayer> layers = layers(random);
+            final ArgbBuffer background = texture(random, WIDTH, HEIGHT);
+
+            final ArgbBuffer expected = background.copy();
+            for (int i = 0; i < layers.size(); i++) {
+                final TrailLayer layer = layers.get(i);
+                final ArgbBuffer crop = layer.getCrop();
+                final TrailTable trail = layer.getTrail();
+                for (int copy = 0; copy < trail.getCount(); copy++) {
+                    final float halfWidth = crop.getWidth() * trail.getScale(copy) / 2;
+                    final float halfHeight = crop.getHeight() * trail.getScale(copy) / 2;
+                    final float centerX = layer.getLeft() + crop.getWidth() / 2f + trail.getOffsetX(copy);
+                    final float centerY = layer.getTop() + crop.getHeight() / 2f + trail.getOffsetY(copy);
+                    TrailCompositor.drawRect(expected, crop, centerX - halfWidth, centerY - halfHeight,
+                            centerX + halfWidth, centerY + halfHeight, trail.getAlpha(copy), 0, HEIGHT);
+                }
+                TrailCompositor.drawRect(expected, crop, layer.getLeft(), layer.getTop(),
+                        layer.getLeft() + crop.getWidth(), layer.getTop() + crop.getHeight(), 255, 0, HEIGHT);
+            }
+            final ArgbBuffer actual = background.copy();
+            new StripCompositor(EXECUTOR, 1).composite(actual, layers);
+
+            assertArrayEquals("run " + run, expected.getPixels(), actual.getPixels());
+        }
+    }
+
+    @Test
+    public void sameOutputForAnyThreadCount() {
+        final Random random = new Random(37);
+        for (int run = 0; run < 10; run++) {
+            final List<TrailLayer> layers = layers(random);
+            final ArgbBuffer background = texture(random, WIDTH, HEIGHT);
+            final ArgbBuffer serial = background.copy();
+            new StripCompositor(EXECUTOR, 1).composite(serial, layers);
+
+            for (int threads : new int[]{2, 4, 8}) {
+                final ArgbBuffer parallel = background.copy();
+                new StripCompositor(EXECUTOR, threads).composite(parallel, layers);
+                assertArrayEquals("run " + run + " threads " + threads, serial.getPixels(), parallel.getPixels());
+            }
+        }
+    }
+
+    private static List<TrailLayer> layers(Random random) {
+        final List<TrailLayer> layers = new ArrayList<>();
+        final int layerCount = 1 + random.nextInt(3);
+        for (int i = 0; i < layerCount; i++) {
+            final TrailTable trail = new TrailTable();
+            trail.update(1 + random.nextInt(30), random.nextFloat() * 300 - 150, random.nextFloat() * 400 - 200,
+                    random.nextInt(256), new TrailStyle(TrailStyle.CURVE_EASE_OUT, TrailStyle.CURVE_LINEAR,
+                            random.nextFloat(), 0.5f + random.nextFloat()));
+            layers.add(new TrailLayer(texture(random, 5 + random.nextInt(60), 5 + random.nextInt(60)),
+                    random.nextInt(WIDTH), random.nextInt(HEIGHT), trail));
+        }
+        return layers;
+    }
+}
@@ -0,0 +1,99 @@
+package com.umut.moveeffect.raster;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.umut.moveeffect.raster.QuadBatchRasterizerTest.texture;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TrailCompositorTest {
+
+    private static final int WIDTH = 120;
+    private static final int HEIGHT = 90;
+
+    @Test
+    public void rectOnWholePixelsMatchesBlit() {
+        final Random random = new Random(23);
+        for (int run = 0; run < 50; run++) {
+            final ArgbBuffer texture = texture(random, 1 + random.nextInt(50), 1 + random.nextInt(50));
+            final int left = random.nextInt(WIDTH + 40) - 40;
+            final int top = random.nextInt(HEIGHT + 40) - 40;
+            final int alpha = random.nextInt(256);
+            final ArgbBuffer background = texture(random, WIDTH, HEIGHT);
+
+            final ArgbBuffer expected = background.copy();
+            TrailCompositor.blit(expected, texture, left, top, alpha, 0, HEIGHT);
+            final ArgbBuffer actual = background.copy();
+            TrailCompositor.drawRect(actual, texture, left, top, left + texture.getWidth(),
+                    top + texture.getHeight(), alpha, 0, HEIGHT);
+
+            assertArrayEquals("run " + run, expected.getPixels(), actual.getPixels());
+        }
+    }
+
+    @Test
+    public void weighsPartlyCoveredPixelsByArea() {
+        final ArgbBuffer texture = new ArgbBuffer(2, 1, new int[]{0xFFFFFFFF, 0xFFFFFFFF});
+        final ArgbBuffer dst = new ArgbBuffer(4, 2);
+
+        TrailCompositor.drawRect(dst, texture, 0.5f, 0f, 2.5f, 1f, 255, 0, 2);
+
+        // half of the first and the last pixel, all of the middle one
+        assertEquals(0x80808080, dst.getPixel(0, 0));
+        assertEquals(0xFFFFFFFF, dst.getPixel(1, 0));
+        assertEquals(0x80808080, dst.getPixel(2, 0));
+        assertEquals(0, dst.getPixel(3, 0));
+        assertEquals(0, dst.getPixel(0, 1));
+    }
+
+    @Test
+    public void samplesTheSourcePixelUnderEachCenter() {
+        final ArgbBuffer texture = new ArgbBuffer(2, 2, new int[]{
+                0xFFFF0000, 0xFF00FF00,
+                0xFF0000FF, 0xFFFFFFFF,
+        });
+        final ArgbBuffer dst = new ArgbBuffer(6, 6);
+
+        TrailCompositor.drawRect(dst, texture, 1f, 1f, 5f, 5f, 255, 0, 6);
+
+        assertEquals(0, dst.getPixel(0, 0));
+        assertEquals(0xFFFF0000, dst.getPixel(2, 2));
+        assertEquals(0xFF00FF00, dst.getPixel(3, 1));
+        assertEquals(0xFF0000FF, dst.getPixel(2, 3));
+        assertEquals(0xFFFFFFFF, dst.getPixel(4, 4));
+        assertEquals(0, dst.getPixel(5, 5));
+    }
+
+    @Test
+    public void shiftsBySubpixelOffsetsLikeCanvas() {
+        final ArgbBuffer texture = new ArgbBuffer(3, 1, new int[]{0xFFFF0000, 0xFF00FF00, 0xFF0000FF});
+        final ArgbBuffer dst = new ArgbBuffer(5, 1);
+
+        TrailCompositor.drawRect(dst, texture, 0.7f, 0f, 3.7f, 1f, 255, 0, 1);
+
+        // the center of pixel 1 lies over source pixel 0, the center of pixel 3 over source pixel 2
+        assertEquals(0x4D4D0000, dst.getPixel(0, 0));
+        assertEquals(0xFFFF0000, dst.getPixel(1, 0));
+        assertEquals(0xFF00FF00, dst.getPixel(2, 0));
+        assertEquals(0xB30000B3, dst.getPixel(3, 0));
+        assertEquals(0, dst.getPixel(4, 0));
+    }
+
+    @Test
+    public void stripsAddUpToTheFullDraw() {
+        final Random random = new Random(29);
+        final ArgbBuffer texture = texture(random, 37, 23);
+        final ArgbBuffer background = texture(random, WIDTH, HEIGHT);
+
+        final ArgbBuffer full = background.copy();
+        TrailCompositor.drawRect(full, texture, 10.3f, 5.6f, 70.9f, 61.2f, 200, 0, HEIGHT);
+        final ArgbBuffer strips = background.copy();
+        for (int row = 0; row < HEIGHT; row += 7) {
+            TrailCompositor.drawRect(strips, texture, 10.3f, 5.6f, 70.9f, 61.2f, 200, row, Math.min(row + 7, HEIGHT));
+        }
+
+        assertArrayEquals(full.getPixels(), strips.getPixels());
+    }
+}
@@ -0,0 +1,143 @@
+package com.umut.moveeffect.recipe;
+
+import com.umut.moveeffect.geometry.Polygon;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RecipeCodecTest {
+
+    private static final float QUANTUM = 1f / 16;
+
+    @Test
+    public void roundTripsOnTheSixteenthPixelGrid() throws IOException {
+        final EffectRecipe recipe = recipe(1080, 1920, 7, 47, 0f, 0f, 100.5f, 0f, 100.25f, 80.0625f, 0f, 80f);
+
+        final EffectRecipe decoded = RecipeCodec.decode(RecipeCodec.encode(recipe));
+
+        assertEquals(recipe, decoded);
+        assertEquals(1080, decoded.getSourceWidth());
+        assertEquals(1920, decoded.getSourceHeight());
+        assertEquals(7, decoded.getRepCount());
+        assertEquals(47, decoded.getAlpha());
+    }
+
+    @Test
+    public void quantizesCoordinatesAndThenEncodesStably() throws IOException {
+        final EffectRecipe recipe = recipe(640, 480, 50, 255, 12.34f, -7.77f, 300.01f, 5.5f, 299.99f, 400.3f);
+
+        final byte[] encoded = RecipeCodec.encode(recipe);
+        final EffectRecipe decoded = RecipeCodec.decode(encoded);
+
+        for (int i = 0; i < recipe.getPointCount(); i++) {
+            assertEquals(recipe.getX(i), decoded.getX(i), QUANTUM / 2);
+            assertEquals(recipe.getY(i), decoded.getY(i), QUANTUM / 2);
+        }
+        assertEquals(recipe.getGrabX(), decoded.getGrabX(), QUANTUM / 2);
+        assertEquals(recipe.getDragY(), decoded.getDragY(), QUANTUM / 2);
+        assertArrayEquals(encoded, RecipeCodec.encode(decoded));
+    }
+
+    @Test
+    public void roundTripsLongOutlines() throws IOException {
+        final float[] coordinates = new float[2000];
+        for (int i = 0; i < coordinates.length; i += 2) {
+            final double angle = i * Math.PI / coordinates.length;
+            coordinates[i] = 500f + (float) (400 * Math.cos(angle));
+            coordinates[i + 1] = 500f + (float) (400 * Math.sin(angle));
+        }
+        final EffectRecipe recipe = RecipeCodec.decode(RecipeCodec.encode(recipe(1000, 1000, 3, 1, coordinates)));
+
+        assertEquals(recipe, RecipeCodec.decode(RecipeCodec.encode(recipe)));
+        assertEquals(1000, recipe.getPointCount());
+    }
+
+    @Test
+    public void rejectsForeignData() {
+        assertRejected(new byte[]{'P', 'K', 3, 4});
+        assertRejected(new byte[0]);
+    }
+
+    @Test
+    public void rejectsUnknownVersions() {
+        final byte[] encoded = RecipeCodec.encode(recipe(10, 10, 3, 1, 0f, 0f, 5f, 0f, 5f, 5f));
+        encoded[2] = (byte) (RecipeCodec.VERSION + 1);
+
+        assertRejected(encoded);
+    }
+
+    @Test
+    public void rejectsTruncatedRecipes() {
+        final byte[] encoded = RecipeCodec.encode(recipe(10, 10, 3, 1, 0f, 0f, 5f, 0f, 5f, 5f));
+
+        for (int length = 0; length < encoded.length; length++) {
+            assertRejected(Arrays.copyOf(encoded, length));
+        }
+    }
+
+    @Test
+    public void rejectsValuesThatCannotBeReplayed() {
+        assertRejected(RecipeCodec.encode(recipe(10, 10, 0, 1, 0f, 0f, 5f, 0f, 5f, 5f)));
+        assertRejected(RecipeCodec.encode(recipe(0, 10, 3, 1, 0f, 0f, 5f, 0f, 5f, 5f)));
+        assertRejected(RecipeCodec.encode(recipe(10, 0, 3, 1, 0f, 0f, 5f, 0f, 5f, 5f)));
+    }
+
+    @Test
+    public void rejectsNegativePointCounts() {
+        assertRejected(withPointCount(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}));
+    }
+
+    @Test
+    public void rejectsPointCountsLargerThanTheData() {
+        // 64 points cannot fit in the four bytes that follow
+        assertRejected(withPointCount(new byte[]{64, 0, 0, 0, 0}));
+    }
+
+    @Test
+    public void rejectsTruncatedPointLists() {
+        // three points announced, the last one is missing its y
+        assertRejected(withPointCount(new byte[]{3, 2, 2, 2, 2, 2}));
+    }
+
+    @Test
+    public void rejectsVarintsWiderThanAnInt() {
+        assertRejected(withPointCount(new byte[]{(byte) 0x81, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10,
+                0, 0}));
+    }
+
+    private static EffectRecipe recipe(int width, int height, int repCount, int alpha, float... coordinates) {
+        final Polygon polygon = new Polygon();
+        polygon.moveTo(coordinates[0], coordinates[1]);
+        for (int i = 2; i < coordinates.length; i += 2) {
+            polygon.lineTo(coordinates[i], coordinates[i + 1]);
+        }
+        return new EffectRecipe(width, height, polygon, coordinates[0] + 1f, coordinates[1] + 2f,
+                coordinates[0] + 40.5f, coordinates[1] - 30.25f, repCount, alpha);
+    }
+
+    /**
+     * @return a valid recipe header followed by {@code tail} in place of the point count and points
+     */
+    private static byte[] withPointCount(byte[] tail) {
+        final byte[] encoded = RecipeCodec.encode(recipe(10, 10, 3, 1, 0f, 0f));
+        // one point takes the count byte and two zero coordinates at the end
+        final byte[] data = Arrays.copyOf(encoded, encoded.length - 3 + tail.length);
+        System.arraycopy(tail, 0, data, encoded.length - 3, tail.length);
+        return data;
+    }
+
+    private static void assertRejected(byte[] data) {
+        try {
+            RecipeCodec.decode(data);
+            fail("Decoded " + data.length + " bytes of invalid data");
+        } catch (IOException expected) {
+            // rejected
+        }
+    }
+}
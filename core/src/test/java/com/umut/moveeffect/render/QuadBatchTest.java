@@ -0,0 +1,110 @@
+package com.umut.moveeffect.render;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class QuadBatchTest {
+
+    private static final float DELTA = 1e-4f;
+
+    @Test
+    public void addsOneQuadPerCopyAndTheSelectionOnTop() {
+        final TrailTable trail = trail(5, 50f, 0f, 128, TrailStyle.DEFAULT);
+        final QuadBatch batch = new QuadBatch();
+
+        batch.addTrail(10f, 20f, 30f, 40f, trail, 1000f, 1000f);
+
+        assertEquals(6, batch.getQuadCount());
+        assertEquals(6 * QuadBatch.VERTICES_PER_QUAD, batch.getVertexCount());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(10f + 10f * (i + 1), batch.getLeft(i), DELTA);
+            assertEquals(20f, batch.getTop(i), DELTA);
+            assertEquals(40f + 10f * (i + 1), batch.getRight(i), DELTA);
+            assertEquals(60f, batch.getBottom(i), DELTA);
+            assertEquals(128 / 255f, batch.getAlpha(i), DELTA);
+        }
+        assertEquals(10f, batch.getLeft(5), DELTA);
+        assertEquals(40f, batch.getRight(5), DELTA);
+        assertEquals(1f, batch.getAlpha(5), DELTA);
+    }
+
+    @Test
+    public void writesTwoTrianglesWithTextureCoordinates() {
+        final QuadBatch batch = new QuadBatch();
+
+        batch.add(1f, 2f, 3f, 4f, 0.5f);
+
+        final float[] expected = {
+                1f, 2f, 0f, 0f, 0.5f,
+                3f, 2f, 1f, 0f, 0.5f,
+                1f, 4f, 0f, 1f, 0.5f,
+                1f, 4f, 0f, 1f, 0.5f,
+                3f, 2f, 1f, 0f, 0.5f,
+                3f, 4f, 1f, 1f, 0.5f,
+        };
+        for (int i = 0; i < QuadBatch.FLOATS_PER_QUAD; i++) {
+            assertEquals("float " + i, expected[i], batch.getVertices()[i], DELTA);
+        }
+    }
+
+    @Test
+    public void scalesCopiesAroundTheirCenter() {
+        final TrailTable trail = trail(2, 0f, 100f, 255, new TrailStyle(TrailStyle.CURVE_LINEAR,
+                TrailStyle.CURVE_LINEAR, 0f, 0.5f));
+        final QuadBatch batch = new QuadBatch();
+
+        batch.addTrail(0f, 0f, 40f, 20f, trail, 1000f, 1000f);
+
+        // second copy at half size, centered 100 px below the selection's center
+        assertEquals(10f, batch.getLeft(1), DELTA);
+        assertEquals(30f, batch.getRight(1), DELTA);
+        assertEquals(105f, batch.getTop(1), DELTA);
+        assertEquals(115f, batch.getBottom(1), DELTA);
+    }
+
+    @Test
+    public void leavesOutCopiesOutsideOfTheViewport() {
+        final TrailTable trail = trail(10, 1000f, 0f, 100, TrailStyle.DEFAULT);
+        final QuadBatch batch = new QuadBatch();
+
+        batch.addTrail(0f, 0f, 50f, 50f, trail, 300f, 300f);
+
+        // copies every 100 px, the ones starting at 300 and beyond miss the viewport
+        assertEquals(3, batch.getQuadCount());
+        assertEquals(0f, batch.getLeft(2), DELTA);
+    }
+
+    @Test
+    public void limitsTheNumberOfCopies() {
+        final TrailTable trail = trail(10, 100f, 100f, 100, TrailStyle.DEFAULT);
+        final QuadBatch batch = new QuadBatch();
+
+        batch.addTrail(0f, 0f, 10f, 10f, trail, 4, 1000f, 1000f);
+        batch.addTrail(0f, 0f, 10f, 10f, trail, 20, 1000f, 1000f);
+
+        assertEquals(5 + 11, batch.getQuadCount());
+    }
+
+    @Test
+    public void growsPastItsInitialCapacityAndClears() {
+        final TrailTable trail = trail(50, 500f, 500f, 100, TrailStyle.DEFAULT);
+        final QuadBatch batch = new QuadBatch();
+
+        batch.addTrail(0f, 0f, 10f, 10f, trail, 1000f, 1000f);
+        batch.addTrail(0f, 0f, 10f, 10f, trail, 1000f, 1000f);
+
+        assertEquals(102, batch.getQuadCount());
+        assertEquals(500f, batch.getLeft(100), DELTA);
+
+        batch.clear();
+
+        assertEquals(0, batch.getQuadCount());
+    }
+
+    static TrailTable trail(int count, float dragX, float dragY, int alpha, TrailStyle style) {
+        final TrailTable trail = new TrailTable();
+        trail.update(count, dragX, dragY, alpha, style);
+        return trail;
+    }
+}
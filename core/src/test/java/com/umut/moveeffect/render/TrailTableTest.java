@@ -0,0 +1,105 @@
+package com.umut.moveeffect.render;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrailTableTest {
+
+    private static final float DELTA = 1e-4f;
+    private static final TrailStyle FADING = new TrailStyle(TrailStyle.CURVE_EASE_IN, TrailStyle.CURVE_LINEAR,
+            0.5f, 2f);
+
+    @Test
+    public void defaultStyleSpacesCopiesEvenlyAtConstantAlpha() {
+        final TrailTable trail = new TrailTable();
+
+        assertTrue(trail.update(4, 100f, -40f, 200, TrailStyle.DEFAULT));
+
+        assertEquals(4, trail.getCount());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(100f * (i + 1) / 4, trail.getOffsetX(i), DELTA);
+            assertEquals(-40f * (i + 1) / 4, trail.getOffsetY(i), DELTA);
+            assertEquals(1f, trail.getScale(i), DELTA);
+            assertEquals(200, trail.getAlpha(i));
+        }
+    }
+
+    @Test
+    public void reportsUnchangedInputs() {
+        final TrailTable trail = new TrailTable();
+        trail.update(5, 10f, 20f, 128, FADING);
+
+        assertFalse(trail.update(5, 10f, 20f, 128, new TrailStyle(TrailStyle.CURVE_EASE_IN,
+                TrailStyle.CURVE_LINEAR, 0.5f, 2f)));
+        assertTrue(trail.update(5, 10f, 21f, 128, FADING));
+        assertTrue(trail.update(6, 10f, 21f, 128, FADING));
+        assertTrue(trail.update(6, 10f, 21f, 127, FADING));
+    }
+
+    @Test
+    public void newDragOnlyMovesTheCopies() {
+        final TrailTable trail = new TrailTable();
+        trail.update(3, 30f, 0f, 255, FADING);
+        final float[] scales = new float[3];
+        final int[] alphas = new int[3];
+        for (int i = 0; i < 3; i++) {
+            scales[i] = trail.getScale(i);
+            alphas[i] = trail.getAlpha(i);
+        }
+
+        assertTrue(trail.update(3, 0f, 90f, 255, FADING));
+
+        for (int i = 0; i < 3; i++) {
+            final float progress = TrailStyle.evaluate(TrailStyle.CURVE_EASE_IN, (i + 1) / 3f);
+            assertEquals(0f, trail.getOffsetX(i), DELTA);
+            assertEquals(90f * progress, trail.getOffsetY(i), DELTA);
+            assertEquals(scales[i], trail.getScale(i), DELTA);
+            assertEquals(alphas[i], trail.getAlpha(i));
+        }
+    }
+
+    @Test
+    public void styleChangeEvaluatesTheCurvesAgain() {
+        final TrailTable trail = new TrailTable();
+        trail.update(2, 50f, 0f, 200, TrailStyle.DEFAULT);
+
+        assertTrue(trail.update(2, 50f, 0f, 200, FADING));
+
+        // ease in spacing puts the first copy at a quarter, the last one at the full drag
+        assertEquals(12.5f, trail.getOffsetX(0), DELTA);
+        assertEquals(50f, trail.getOffsetX(1), DELTA);
+        assertEquals(1.25f, trail.getScale(0), DELTA);
+        assertEquals(2f, trail.getScale(1), DELTA);
+        assertEquals(150, trail.getAlpha(0));
+        assertEquals(100, trail.getAlpha(1));
+    }
+
+    @Test
+    public void noCopiesForCountsBelowOne() {
+        final TrailTable trail = new TrailTable();
+        trail.update(3, 30f, 30f, 255, TrailStyle.DEFAULT);
+
+        assertTrue(trail.update(0, 30f, 30f, 255, TrailStyle.DEFAULT));
+        assertEquals(0, trail.getCount());
+        trail.update(-5, 30f, 30f, 255, TrailStyle.DEFAULT);
+        assertEquals(0, trail.getCount());
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        final TrailTable trail = new TrailTable();
+        trail.update(3, 30f, 0f, 255, FADING);
+        final TrailTable copy = trail.copy();
+
+        trail.update(3, 60f, 0f, 10, TrailStyle.DEFAULT);
+
+        assertEquals(3, copy.getCount());
+        assertEquals(30f, copy.getOffsetX(2), DELTA);
+        assertEquals(128, copy.getAlpha(2));
+        // a copy knows its inputs, so the same update reports no change
+        assertFalse(copy.update(3, 30f, 0f, 255, FADING));
+    }
+}